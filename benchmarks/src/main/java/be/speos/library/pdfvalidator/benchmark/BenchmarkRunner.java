@@ -0,0 +1,26 @@
+package be.speos.library.pdfvalidator.benchmark;
+
+import org.openjdk.jmh.Main;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Entry point of the benchmarks jar. Behaves like the JMH launcher but always attaches the GC profiler,
+ * so every run reports gc.alloc.rate and gc.alloc.rate.norm next to throughput and latency.
+ */
+public final class BenchmarkRunner {
+
+    private BenchmarkRunner() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        if (!arguments.contains("-prof") && !arguments.contains("-h") && !arguments.contains("-l")) {
+            arguments.add("-prof");
+            arguments.add("gc");
+        }
+        Main.main(arguments.toArray(new String[0]));
+    }
+}
@@ -0,0 +1,97 @@
+package be.speos.library.pdfvalidator.benchmark;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.dto.PageSelectionDto;
+import be.speos.library.pdfvalidator.enums.OverlapMarkerMode;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import be.speos.library.pdfvalidator.enums.PageType;
+import be.speos.library.pdfvalidator.util.DimensionChecker;
+import be.speos.library.pdfvalidator.util.FileManipulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileManipulatorBenchmark {
+
+    private static final String FILE_NAME = "document.pdf";
+
+    @Param({"10", "100"})
+    public int pageCount;
+
+    @Param({"4"})
+    public int fontCount;
+
+    @Param({"2"})
+    public int imageCount;
+
+    @Param({"20"})
+    public int redLineDensity;
+
+    @Param({"CONTENT", "ANNOTATIONS"})
+    public OverlapMarkerMode overlapMarkerMode;
+
+    private Path directory;
+    private Path original;
+    private Path destination;
+    private String sessionPath;
+    private FileManipulator fileManipulator;
+    private Map<OverlayListType, OverlayDetail> overlayDetailMap;
+
+    @Setup(Level.Trial)
+    public void createDocuments() throws IOException {
+        directory = Files.createTempDirectory("pdf-manipulator-benchmark");
+        original = SyntheticPdfFactory.createDocument(directory, FILE_NAME, pageCount, fontCount, imageCount, redLineDensity);
+        destination = directory.resolve("result.pdf");
+        SyntheticPdfFactory.createDocument(directory.resolve("session").resolve("overlay"), FILE_NAME, pageCount, fontCount, imageCount, redLineDensity);
+        sessionPath = directory.resolve("session").toString();
+
+        Path overlays = directory.resolve("overlays");
+        SyntheticPdfFactory.createOverlay(overlays, "first.pdf", "FIRST PAGE");
+        SyntheticPdfFactory.createOverlay(overlays, "all.pdf", "ALL PAGES");
+        SyntheticPdfFactory.createOverlay(overlays, "payment.pdf", "PAYMENT");
+        fileManipulator = FileManipulator.builder().dimensionChecker(new DimensionChecker(595, 842, 5)).overlayPath(overlays.toString())
+                .overlapMarkerMode(overlapMarkerMode).build();
+        overlayDetailMap = createOverlayDetailMap(pageCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDocuments() {
+        SyntheticPdfFactory.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public byte[] manipulateFile() {
+        return fileManipulator.manipulateFile(original, destination, overlayDetailMap);
+    }
+
+    @Benchmark
+    public byte[] manipulateFileWithOverlappingValidation() {
+        return fileManipulator.manipulateFileWithOverlappingValidation(original, sessionPath, FILE_NAME);
+    }
+
+    static Map<OverlayListType, OverlayDetail> createOverlayDetailMap(int pageCount) {
+        PageSelectionDto paymentPages = new PageSelectionDto();
+        paymentPages.setPageType(PageType.RANGE.getPageTypeName());
+        paymentPages.setRangeFrom(1);
+        paymentPages.setRangeTo(Math.max(1, pageCount / 2));
+
+        Map<OverlayListType, OverlayDetail> overlayDetailMap = new EnumMap<>(OverlayListType.class);
+        overlayDetailMap.put(OverlayListType.FIRST_PAGE, new OverlayDetail(Collections.singletonList("first.pdf"), false));
+        overlayDetailMap.put(OverlayListType.ALL_PAGE, new OverlayDetail(Arrays.asList("all.pdf", "first.pdf"), false));
+        overlayDetailMap.put(OverlayListType.PAYMENT, new OverlayDetail(Collections.singletonList("payment.pdf"), true, paymentPages));
+        return overlayDetailMap;
+    }
+}
@@ -0,0 +1,79 @@
+package be.speos.library.pdfvalidator.benchmark;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import be.speos.library.pdfvalidator.util.FileManipulator;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stress test for a single {@link FileManipulator} shared by all benchmark threads. Documents are read from memory
+ * and written to a per-thread buffer, so disk I/O does not limit the scaling. Run it with an increasing thread count,
+ * for example {@code -t 1}, {@code -t 2}, {@code -t 4} up to the number of cores, and compare the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FileManipulatorConcurrencyBenchmark {
+
+    private static final String FILE_NAME = "document.pdf";
+
+    @Param({"10"})
+    public int pageCount;
+
+    private Path directory;
+    private ByteBuffer original;
+    private FileManipulator fileManipulator;
+    private Map<OverlayListType, OverlayDetail> overlayDetailMap;
+
+    @State(Scope.Thread)
+    public static class ThreadBuffer {
+        private final ByteArrayOutputStream destination = new ByteArrayOutputStream(1024 * 1024);
+    }
+
+    @Setup(Level.Trial)
+    public void createDocuments() throws IOException {
+        directory = Files.createTempDirectory("pdf-manipulator-concurrency-benchmark");
+        original = ByteBuffer.wrap(Files.readAllBytes(SyntheticPdfFactory.createDocument(directory, FILE_NAME, pageCount, 4, 2, 20)));
+
+        Path overlays = directory.resolve("overlays");
+        SyntheticPdfFactory.createOverlay(overlays, "first.pdf", "FIRST PAGE");
+        SyntheticPdfFactory.createOverlay(overlays, "all.pdf", "ALL PAGES");
+        SyntheticPdfFactory.createOverlay(overlays, "payment.pdf", "PAYMENT");
+        fileManipulator = FileManipulator.builder()
+                .dimensions(595, 842, 5)
+                .overlayPath(overlays.toString())
+                .cacheSize(16, 8L * 1024 * 1024)
+                .build();
+        overlayDetailMap = FileManipulatorBenchmark.createOverlayDetailMap(pageCount);
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDocuments() {
+        SyntheticPdfFactory.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public int manipulateFile(ThreadBuffer buffer) throws IOException {
+        buffer.destination.reset();
+        fileManipulator.manipulateFile(original, buffer.destination, overlayDetailMap);
+        return buffer.destination.size();
+    }
+
+    @Benchmark
+    public int manipulateFileWithOverlappingValidation(ThreadBuffer buffer) throws IOException {
+        buffer.destination.reset();
+        fileManipulator.manipulateFileWithOverlappingValidation(original, buffer.destination);
+        return buffer.destination.size();
+    }
+}
@@ -0,0 +1,79 @@
+package be.speos.library.pdfvalidator.benchmark;
+
+import be.speos.library.pdfvalidator.util.OverlapDetector;
+import be.speos.library.pdfvalidator.util.OverlappingTextSearchingStrategy;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfDocumentContentParser;
+import com.itextpdf.kernel.pdf.canvas.parser.listener.FilteredEventListener;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the overlap listener on a single page. parsePageBaseline runs the same content parsing with a
+ * listener that ignores all events, so the difference to parsePage is the cost of collecting the boxes and
+ * the difference between parsePage and parsePageAndFindOverlapping is the cost of the intersection search.
+ * detectOverlapping runs the filtered parsing of the overlap detector, without red lines the page is skipped.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverlappingTextSearchingStrategyBenchmark {
+
+    @Param({"1", "4"})
+    public int fontCount;
+
+    @Param({"0", "4"})
+    public int imageCount;
+
+    @Param({"0", "20", "400"})
+    public int redLineDensity;
+
+    private Path directory;
+    private PdfDocument pdfDoc;
+    private PdfDocumentContentParser contentParser;
+
+    @Setup(Level.Trial)
+    public void openDocument() throws IOException {
+        directory = Files.createTempDirectory("pdf-strategy-benchmark");
+        Path file = SyntheticPdfFactory.createDocument(directory, "page.pdf", 1, fontCount, imageCount, redLineDensity);
+        pdfDoc = new PdfDocument(new PdfReader(file.toString()));
+        contentParser = new PdfDocumentContentParser(pdfDoc);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeDocument() {
+        pdfDoc.close();
+        SyntheticPdfFactory.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public OverlappingTextSearchingStrategy parsePage() {
+        return contentParser.processContent(1, new OverlappingTextSearchingStrategy());
+    }
+
+    @Benchmark
+    public FilteredEventListener parsePageBaseline() {
+        return contentParser.processContent(1, new FilteredEventListener());
+    }
+
+    @Benchmark
+    public Set<Rectangle> parsePageAndFindOverlapping() {
+        return contentParser.processContent(1, new OverlappingTextSearchingStrategy()).foundOverlappingText();
+    }
+
+    @Benchmark
+    public Map<Integer, Set<Rectangle>> detectOverlapping() {
+        return OverlapDetector.detect(pdfDoc);
+    }
+}
@@ -0,0 +1,85 @@
+package be.speos.library.pdfvalidator.benchmark;
+
+import be.speos.library.pdfvalidator.dto.ValidationReport;
+import be.speos.library.pdfvalidator.util.DimensionChecker;
+import be.speos.library.pdfvalidator.util.PDFValidator;
+import be.speos.library.pdfvalidator.util.ValidationEngine;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PDFValidatorBenchmark {
+
+    private static final String FILE_NAME = "document.pdf";
+
+    @Param({"10", "100"})
+    public int pageCount;
+
+    @Param({"4"})
+    public int fontCount;
+
+    @Param({"2"})
+    public int imageCount;
+
+    @Param({"0", "20"})
+    public int redLineDensity;
+
+    private Path directory;
+    private String path;
+    private DimensionChecker dimensionChecker;
+    private ValidationEngine validationEngine;
+
+    @Setup(Level.Trial)
+    public void createDocuments() throws IOException {
+        directory = Files.createTempDirectory("pdf-validator-benchmark");
+        SyntheticPdfFactory.createDocument(directory, FILE_NAME, pageCount, fontCount, imageCount, redLineDensity);
+        SyntheticPdfFactory.createDocument(directory.resolve("overlay"), FILE_NAME, pageCount, fontCount, imageCount, redLineDensity);
+        path = directory.toString();
+        dimensionChecker = new DimensionChecker(595, 842, 5);
+        validationEngine = ValidationEngine.builder().dimensionChecker(dimensionChecker).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteDocuments() {
+        SyntheticPdfFactory.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public boolean validatePassword() throws IOException {
+        return PDFValidator.validatePassword(path, FILE_NAME);
+    }
+
+    @Benchmark
+    public boolean validateSameSize() {
+        return PDFValidator.validateSameSize(path, FILE_NAME, dimensionChecker);
+    }
+
+    @Benchmark
+    public boolean validateEmbeddedFonts() {
+        return PDFValidator.validateEmbeddedFonts(path, FILE_NAME);
+    }
+
+    @Benchmark
+    public boolean validatePageWeight() {
+        return PDFValidator.validatePageWeight(path, FILE_NAME);
+    }
+
+    @Benchmark
+    public boolean validateOverlapping() throws IOException {
+        return PDFValidator.validateOverlapping(path, FILE_NAME);
+    }
+
+    @Benchmark
+    public ValidationReport validationEngine() {
+        return validationEngine.validate(path, FILE_NAME);
+    }
+}
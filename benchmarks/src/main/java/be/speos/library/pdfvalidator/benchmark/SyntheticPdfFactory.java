@@ -0,0 +1,144 @@
+package be.speos.library.pdfvalidator.benchmark;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Random;
+
+/**
+ * Generates the documents used by the benchmarks, so no test files have to be shipped.
+ * Generation is seeded and produces the same document for the same parameters.
+ */
+public final class SyntheticPdfFactory {
+
+    private static final String[] STANDARD_FONTS = {
+            StandardFonts.HELVETICA, StandardFonts.TIMES_ROMAN, StandardFonts.COURIER, StandardFonts.HELVETICA_BOLD,
+            StandardFonts.TIMES_BOLD, StandardFonts.COURIER_BOLD, StandardFonts.HELVETICA_OBLIQUE, StandardFonts.TIMES_ITALIC,
+            StandardFonts.COURIER_OBLIQUE, StandardFonts.HELVETICA_BOLDOBLIQUE, StandardFonts.TIMES_BOLDITALIC,
+            StandardFonts.COURIER_BOLDOBLIQUE, StandardFonts.SYMBOL, StandardFonts.ZAPFDINGBATS
+    };
+    private static final int TEXT_LINES_PER_PAGE = 60;
+    private static final int WORDS_PER_LINE = 8;
+
+    private SyntheticPdfFactory() {
+    }
+
+    /**
+     * A4 document with text lines split into separate text chunks per word, images placed over the text and
+     * red guide lines, a quarter of them drawn as three segment vertical markers.
+     *
+     * @param fontCount      number of distinct standard fonts used, at most 14
+     * @param imageCount     images per page
+     * @param redLineDensity red guide lines per page
+     */
+    public static Path createDocument(Path directory, String fileName, int pageCount, int fontCount, int imageCount,
+                                      int redLineDensity) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(fileName);
+        Random random = new Random(pageCount * 31L + fontCount * 17L + imageCount * 7L + redLineDensity);
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            PdfFont[] fonts = new PdfFont[Math.max(1, Math.min(fontCount, STANDARD_FONTS.length))];
+            for (int i = 0; i < fonts.length; i++) {
+                fonts[i] = PdfFontFactory.createFont(STANDARD_FONTS[i]);
+            }
+            ImageData image = imageCount > 0 ? createImage(random) : null;
+
+            for (int page = 0; page < pageCount; page++) {
+                PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage(PageSize.A4));
+                for (int line = 0; line < TEXT_LINES_PER_PAGE; line++) {
+                    float x = 40;
+                    float y = 800 - line * 12.5f;
+                    for (int word = 0; word < WORDS_PER_LINE; word++) {
+                        PdfFont font = fonts[(line + word) % fonts.length];
+                        canvas.beginText().setFontAndSize(font, 9).moveText(x, y).showText("word" + word).endText();
+                        x += 62;
+                    }
+                }
+                for (int i = 0; i < imageCount; i++) {
+                    canvas.addImage(image, 40 + random.nextInt(450), 40 + random.nextInt(700), 60, false);
+                }
+                if (redLineDensity > 0) {
+                    canvas.setStrokeColor(ColorConstants.RED);
+                }
+                for (int i = 0; i < redLineDensity; i++) {
+                    float x = 20 + random.nextInt(400);
+                    float y = 20 + random.nextInt(780);
+                    if (i % 4 == 3) {
+                        canvas.moveTo(x, y).lineTo(x + 10, y).lineTo(x + 10, y + 40).lineTo(x, y + 40).stroke();
+                    } else {
+                        canvas.moveTo(x, y).lineTo(x + 40 + random.nextInt(120), y).stroke();
+                    }
+                }
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Single page overlay with a label and a frame, comparable to the templates used in production.
+     */
+    public static Path createOverlay(Path directory, String fileName, String label) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(fileName);
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage(PageSize.A4));
+            canvas.beginText().setFontAndSize(PdfFontFactory.createFont(StandardFonts.COURIER), 10)
+                    .moveText(380, 20).showText(label).endText();
+            canvas.setStrokeColor(ColorConstants.GREEN).rectangle(10, 10, 60, 30).stroke();
+        }
+        return file;
+    }
+
+    public static void deleteRecursively(Path directory) {
+        if (directory == null || !Files.exists(directory)) {
+            return;
+        }
+        try {
+            Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static ImageData createImage(Random random) throws IOException {
+        BufferedImage bufferedImage = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < bufferedImage.getWidth(); x++) {
+            for (int y = 0; y < bufferedImage.getHeight(); y++) {
+                bufferedImage.setRGB(x, y, random.nextInt());
+            }
+        }
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        ImageIO.write(bufferedImage, "png", outputStream);
+        return ImageDataFactory.create(outputStream.toByteArray());
+    }
+}
@@ -0,0 +1,50 @@
+package be.speos.library.pdfvalidator.batch;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.dto.ValidationReport;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import be.speos.library.pdfvalidator.util.FileManipulator;
+import be.speos.library.pdfvalidator.util.ValidationEngine;
+
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+/**
+ * Unit of work for a {@link BatchProcessor}. The id is only used for logging and error messages.
+ */
+public final class BatchJob<T> {
+
+    private final String id;
+    private final Callable<T> task;
+
+    private BatchJob(String id, Callable<T> task) {
+        this.id = id;
+        this.task = task;
+    }
+
+    public static <T> BatchJob<T> of(String id, Callable<T> task) {
+        return new BatchJob<>(id, task);
+    }
+
+    public static BatchJob<ValidationReport> validation(ValidationEngine validationEngine, Path filePath) {
+        return new BatchJob<>(filePath.toString(), () -> validationEngine.validate(filePath));
+    }
+
+    public static BatchJob<byte[]> overlay(FileManipulator fileManipulator, Path originalPath, Path destinationPath,
+                                           Map<OverlayListType, OverlayDetail> overlayDetailMap) {
+        return new BatchJob<>(originalPath.toString(), () -> fileManipulator.manipulateFile(originalPath, destinationPath, overlayDetailMap));
+    }
+
+    public static BatchJob<byte[]> overlappingValidation(FileManipulator fileManipulator, Path filePath, String sessionPath, String fileName) {
+        return new BatchJob<>(filePath.toString(), () -> fileManipulator.manipulateFileWithOverlappingValidation(filePath, sessionPath, fileName));
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    T call() throws Exception {
+        return task.call();
+    }
+}
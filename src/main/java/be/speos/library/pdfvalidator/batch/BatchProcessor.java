@@ -0,0 +1,239 @@
+package be.speos.library.pdfvalidator.batch;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs validation and overlay jobs on a bounded number of workers. At most {@code parallelism} jobs run at the
+ * same time and at most {@code queueCapacity} more are accepted, {@link #submit(BatchJob)} blocks the caller
+ * until a slot frees up. Jobs run on virtual threads when the runtime offers them, otherwise on a fixed pool
+ * of platform threads.
+ * <p>
+ * A job that exceeds its timeout or whose future is cancelled completes its future right away and its worker
+ * thread is interrupted. iText does not react to interruption while parsing, so the worker slot is only freed
+ * once the job actually returns, but the other jobs of the batch and the callers waiting on them are not held up.
+ */
+public class BatchProcessor implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(BatchProcessor.class);
+    private static final AtomicInteger PROCESSOR_COUNT = new AtomicInteger();
+
+    public static final long DEFAULT_CLOSE_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(5);
+
+    private final ExecutorService executor;
+    private final ScheduledThreadPoolExecutor timeoutScheduler;
+    private final Semaphore admission;
+    private final Semaphore workers;
+    private final long defaultTimeoutMillis;
+    private final long closeTimeoutMillis;
+
+    public BatchProcessor(int parallelism, int queueCapacity) {
+        this(parallelism, queueCapacity, 0, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @param defaultTimeout timeout of a job once it started running, zero or less for no timeout
+     */
+    public BatchProcessor(int parallelism, int queueCapacity, long defaultTimeout, TimeUnit unit) {
+        this(parallelism, queueCapacity, defaultTimeout, unit.convert(DEFAULT_CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS), unit);
+    }
+
+    /**
+     * @param defaultTimeout timeout of a job once it started running, zero or less for no timeout
+     * @param closeTimeout   how long {@link #close()} waits for the submitted jobs before it cancels them
+     */
+    public BatchProcessor(int parallelism, int queueCapacity, long defaultTimeout, long closeTimeout, TimeUnit unit) {
+        if (parallelism < 1 || queueCapacity < 0) {
+            throw new IllegalArgumentException("parallelism must be at least 1 and queueCapacity must not be negative");
+        }
+        String prefix = "pdf-batch-" + PROCESSOR_COUNT.incrementAndGet();
+        this.executor = createExecutor(parallelism, prefix);
+        this.timeoutScheduler = new ScheduledThreadPoolExecutor(1, daemonThreadFactory(prefix + "-timeout"));
+        this.timeoutScheduler.setRemoveOnCancelPolicy(true);
+        this.admission = new Semaphore(parallelism + queueCapacity);
+        this.workers = new Semaphore(parallelism);
+        this.defaultTimeoutMillis = unit.toMillis(defaultTimeout);
+        this.closeTimeoutMillis = unit.toMillis(closeTimeout);
+    }
+
+    public boolean usesVirtualThreads() {
+        return !(executor instanceof ThreadPoolExecutor);
+    }
+
+    public <T> CompletableFuture<T> submit(BatchJob<T> job) throws InterruptedException {
+        return submit(job, defaultTimeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public <T> CompletableFuture<T> submit(BatchJob<T> job, long timeout, TimeUnit unit) throws InterruptedException {
+        admission.acquire();
+        JobExecution<T> execution = new JobExecution<>(job, unit.toMillis(timeout));
+        try {
+            executor.execute(execution);
+        } catch (RejectedExecutionException e) {
+            admission.release();
+            throw e;
+        }
+        return execution.result;
+    }
+
+    /**
+     * Submits the jobs of the stream as slots free up. The returned futures are in stream order.
+     */
+    public <T> List<CompletableFuture<T>> submitAll(Stream<BatchJob<T>> jobs) throws InterruptedException {
+        List<CompletableFuture<T>> results = new ArrayList<>();
+        Iterator<BatchJob<T>> iterator = jobs.iterator();
+        while (iterator.hasNext()) {
+            results.add(submit(iterator.next()));
+        }
+        return results;
+    }
+
+    /**
+     * Polls and submits jobs until the queue is empty.
+     */
+    public <T> List<CompletableFuture<T>> submitAll(Queue<BatchJob<T>> jobs) throws InterruptedException {
+        List<CompletableFuture<T>> results = new ArrayList<>();
+        BatchJob<T> job;
+        while ((job = jobs.poll()) != null) {
+            results.add(submit(job));
+        }
+        return results;
+    }
+
+    /**
+     * Stops accepting jobs and waits for the submitted jobs to finish. Jobs still running after the close timeout, or
+     * when the calling thread is interrupted, are cancelled as with {@link #shutdownNow()}; the interrupt is kept.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(closeTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.error("Batch jobs did not finish within {} ms, cancelling them", closeTimeoutMillis);
+                shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            log.debug(e.getMessage(), e);
+            shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        timeoutScheduler.shutdownNow();
+    }
+
+    /**
+     * Stops accepting jobs, cancels the queued ones and interrupts the running ones.
+     */
+    public void shutdownNow() {
+        for (Runnable pending : executor.shutdownNow()) {
+            if (pending instanceof JobExecution) {
+                ((JobExecution<?>) pending).result.cancel(false);
+                admission.release();
+            }
+        }
+        timeoutScheduler.shutdownNow();
+    }
+
+    private final class JobExecution<T> implements Runnable {
+        private final BatchJob<T> job;
+        private final long timeoutMillis;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private Thread runner;
+
+        private JobExecution(BatchJob<T> job, long timeoutMillis) {
+            this.job = job;
+            this.timeoutMillis = timeoutMillis;
+            result.whenComplete((value, error) -> {
+                if (error != null) {
+                    interruptRunner();
+                }
+            });
+        }
+
+        @Override
+        public void run() {
+            try {
+                if (result.isDone()) {
+                    return;
+                }
+                workers.acquire();
+                try {
+                    runJob();
+                } finally {
+                    workers.release();
+                }
+            } catch (InterruptedException e) {
+                result.completeExceptionally(e);
+                Thread.currentThread().interrupt();
+            } finally {
+                admission.release();
+            }
+        }
+
+        private void runJob() {
+            setRunner(Thread.currentThread());
+            ScheduledFuture<?> timeout = null;
+            try {
+                if (result.isDone()) {
+                    return;
+                }
+                if (timeoutMillis > 0) {
+                    timeout = timeoutScheduler.schedule(() -> {
+                        if (result.completeExceptionally(new TimeoutException("Batch job " + job.getId() + " timed out after " + timeoutMillis + " ms"))) {
+                            log.error("Batch job {} timed out", job.getId());
+                        }
+                    }, timeoutMillis, TimeUnit.MILLISECONDS);
+                }
+                result.complete(job.call());
+            } catch (Exception e) {
+                log.debug(e.getMessage(), e);
+                result.completeExceptionally(e);
+            } finally {
+                if (timeout != null) {
+                    timeout.cancel(false);
+                }
+                setRunner(null);
+                //an interrupt aimed at this job must not leak into the next one
+                Thread.interrupted();
+            }
+        }
+
+        private synchronized void setRunner(Thread thread) {
+            runner = thread;
+        }
+
+        private synchronized void interruptRunner() {
+            if (runner != null) {
+                runner.interrupt();
+            }
+        }
+    }
+
+    private static ExecutorService createExecutor(int parallelism, String prefix) {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.debug("Virtual threads are not available, using a platform thread pool");
+        }
+        return new ThreadPoolExecutor(parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemonThreadFactory(prefix));
+    }
+
+    private static ThreadFactory daemonThreadFactory(String prefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
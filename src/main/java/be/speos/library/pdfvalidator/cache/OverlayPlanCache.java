@@ -0,0 +1,109 @@
+package be.speos.library.pdfvalidator.cache;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.dto.PageSelectionDto;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import be.speos.library.pdfvalidator.metrics.Counter;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+import be.speos.library.pdfvalidator.util.OverlayPlan;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe LRU cache of compiled {@link OverlayPlan}s. The key is a copy of the configuration values
+ * and the page count, so equal configurations share a plan even when they are separate objects and later
+ * changes to the configuration objects do not affect cached plans.
+ */
+public class OverlayPlanCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 256;
+
+    private final int maxEntries;
+    private final Instrumentation instrumentation;
+    private final Map<List<Object>, OverlayPlan> plans = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public OverlayPlanCache(int maxEntries) {
+        this(maxEntries, Instrumentation.NOOP);
+    }
+
+    public OverlayPlanCache(int maxEntries, Instrumentation instrumentation) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.instrumentation = instrumentation;
+    }
+
+    public OverlayPlan get(Map<OverlayListType, OverlayDetail> overlayDetailMap, int pageCount) {
+        List<Object> key = createKey(overlayDetailMap, pageCount);
+        synchronized (this) {
+            OverlayPlan plan = plans.get(key);
+            if (plan != null) {
+                hitCount.incrementAndGet();
+                instrumentation.increment(Counter.OVERLAY_PLAN_CACHE_HITS, 1);
+                return plan;
+            }
+        }
+
+        missCount.incrementAndGet();
+        instrumentation.increment(Counter.OVERLAY_PLAN_CACHE_MISSES, 1);
+        OverlayPlan compiled = OverlayPlan.compile(overlayDetailMap, pageCount);
+        synchronized (this) {
+            plans.put(key, compiled);
+            Iterator<OverlayPlan> iterator = plans.values().iterator();
+            while (iterator.hasNext() && plans.size() > maxEntries) {
+                iterator.next();
+                iterator.remove();
+                evictionCount.incrementAndGet();
+            }
+        }
+        return compiled;
+    }
+
+    public synchronized void invalidateAll() {
+        plans.clear();
+    }
+
+    public synchronized int size() {
+        return plans.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private static List<Object> createKey(Map<OverlayListType, OverlayDetail> overlayDetailMap, int pageCount) {
+        List<Object> key = new ArrayList<>();
+        key.add(pageCount);
+        for (OverlayListType type : OverlayListType.values()) {
+            OverlayDetail overlayDetail = overlayDetailMap.get(type);
+            if (overlayDetail == null) {
+                key.add(null);
+                continue;
+            }
+            key.add(new ArrayList<>(overlayDetail.getOverlays()));
+            key.add(overlayDetail.getAddCustomOverlay());
+            PageSelectionDto pageInfo = overlayDetail.getPageInfo();
+            if (pageInfo == null) {
+                key.add(null);
+            } else {
+                key.add(Arrays.asList(pageInfo.getPageType(), pageInfo.getSinglePage(), pageInfo.getRangeFrom(),
+                        pageInfo.getRangeTo(), pageInfo.getCustomPages()));
+            }
+        }
+        return key;
+    }
+}
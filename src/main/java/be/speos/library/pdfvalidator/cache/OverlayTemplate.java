@@ -0,0 +1,55 @@
+package be.speos.library.pdfvalidator.cache;
+
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Overlay file kept in memory by the {@link OverlayTemplateCache}. The template document is parsed once
+ * and shared, copies into destination documents are serialized on the template.
+ */
+public class OverlayTemplate {
+
+    private final Path path;
+    private final long lastModified;
+    private final long size;
+    private final byte[] content;
+    private PdfDocument document;
+
+    OverlayTemplate(Path path, long lastModified, long size, byte[] content) {
+        this.path = path;
+        this.lastModified = lastModified;
+        this.size = size;
+        this.content = content;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    public synchronized PdfFormXObject copyFirstPageTo(PdfDocument destination) throws IOException {
+        if (document == null) {
+            document = new PdfDocument(new PdfReader(new ByteArrayInputStream(content)));
+        }
+        return document.getFirstPage().copyAsFormXObject(destination);
+    }
+
+    boolean matches(long lastModified, long size) {
+        return this.lastModified == lastModified && this.size == size;
+    }
+
+    long getWeight() {
+        return content.length;
+    }
+
+    synchronized void release() {
+        if (document != null) {
+            document.close();
+            document = null;
+        }
+    }
+}
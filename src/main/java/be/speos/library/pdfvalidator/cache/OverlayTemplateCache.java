@@ -0,0 +1,125 @@
+package be.speos.library.pdfvalidator.cache;
+
+import be.speos.library.pdfvalidator.metrics.Counter;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe LRU cache of parsed overlay files. Entries are keyed by the overlay path and are
+ * reloaded when the modification time or size of the file changes. The cache evicts the least recently
+ * used templates once either the entry limit or the byte limit is exceeded.
+ */
+public class OverlayTemplateCache {
+
+    public static final int DEFAULT_MAX_ENTRIES = 64;
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private static final OverlayTemplateCache DEFAULT_CACHE = new OverlayTemplateCache(DEFAULT_MAX_ENTRIES, DEFAULT_MAX_BYTES);
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Instrumentation instrumentation;
+    private final Map<Path, OverlayTemplate> templates = new LinkedHashMap<>(16, 0.75f, true);
+    private long currentBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public OverlayTemplateCache(int maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, Instrumentation.NOOP);
+    }
+
+    public OverlayTemplateCache(int maxEntries, long maxBytes, Instrumentation instrumentation) {
+        if (maxEntries < 0 || maxBytes < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.instrumentation = instrumentation;
+    }
+
+    /**
+     * Process wide cache used when no cache is configured explicitly.
+     */
+    public static OverlayTemplateCache getDefault() {
+        return DEFAULT_CACHE;
+    }
+
+    public OverlayTemplate get(Path overlayFile) throws IOException {
+        Path key = overlayFile.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        long size = attributes.size();
+
+        synchronized (this) {
+            OverlayTemplate template = templates.get(key);
+            if (template != null && template.matches(lastModified, size)) {
+                hitCount.incrementAndGet();
+                instrumentation.increment(Counter.OVERLAY_CACHE_HITS, 1);
+                return template;
+            }
+        }
+
+        missCount.incrementAndGet();
+        instrumentation.increment(Counter.OVERLAY_CACHE_MISSES, 1);
+        OverlayTemplate loaded = new OverlayTemplate(key, lastModified, size, Files.readAllBytes(key));
+        synchronized (this) {
+            OverlayTemplate previous = templates.put(key, loaded);
+            if (previous != null) {
+                currentBytes -= previous.getWeight();
+                previous.release();
+            }
+            currentBytes += loaded.getWeight();
+            evict();
+        }
+        return loaded;
+    }
+
+    public synchronized void invalidateAll() {
+        for (OverlayTemplate template : templates.values()) {
+            template.release();
+        }
+        templates.clear();
+        currentBytes = 0;
+    }
+
+    public synchronized int size() {
+        return templates.size();
+    }
+
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private void evict() {
+        Iterator<OverlayTemplate> iterator = templates.values().iterator();
+        while (iterator.hasNext() && (templates.size() > maxEntries || currentBytes > maxBytes)) {
+            OverlayTemplate eldest = iterator.next();
+            iterator.remove();
+            currentBytes -= eldest.getWeight();
+            eldest.release();
+            evictionCount.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,363 @@
+package be.speos.library.pdfvalidator.cache;
+
+import be.speos.library.pdfvalidator.dto.CheckResult;
+import be.speos.library.pdfvalidator.dto.OverlapResult;
+import be.speos.library.pdfvalidator.dto.ValidationReport;
+import be.speos.library.pdfvalidator.enums.ValidationCheck;
+import be.speos.library.pdfvalidator.metrics.Counter;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+import be.speos.library.pdfvalidator.util.OverlapResultSerializer;
+import com.itextpdf.kernel.geom.Rectangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded, thread-safe cache of validation reports and overlap rectangles. Results are keyed by the SHA-256 hash of
+ * the document bytes and a configuration string, so identical uploads share results and any change of the
+ * configuration misses. The least recently used results are kept in memory; with a directory every result is also
+ * written to disk and survives restarts. Returned reports and maps are copies and can be changed by the caller,
+ * overlap results are immutable and shared.
+ * <p>
+ * Hashing a file reads all of it, so {@link #hash(Path)} memoizes the hash per path, size, modification time and file
+ * key and only reads files that are new or changed. SHA-256 is kept because the disk tier trusts the hash across
+ * restarts. A file rewritten with the same size within the timestamp resolution would keep its old hash, so files
+ * modified in the last {@value #TIMESTAMP_RESOLUTION_MILLIS} ms are hashed but not memoized.
+ */
+public class ValidationResultCache {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationResultCache.class);
+
+    public static final int DEFAULT_MAX_ENTRIES = 1024;
+
+    //bump when the stored format or the result of a check changes, older disk entries are ignored
+    private static final int FORMAT_VERSION = 2;
+    private static final int MAGIC = 0x50565243;
+    private static final String REPORT = "report";
+    private static final String OVERLAPS = "overlaps";
+    private static final long TIMESTAMP_RESOLUTION_MILLIS = 2000;
+
+    private static final Map<Path, FileHash> FILE_HASHES = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final int maxEntries;
+    private final Path directory;
+    private final Instrumentation instrumentation;
+    private final Map<String, Object> results = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong diskHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public ValidationResultCache(int maxEntries) {
+        this(maxEntries, null);
+    }
+
+    public ValidationResultCache(int maxEntries, Path directory) {
+        this(maxEntries, directory, Instrumentation.NOOP);
+    }
+
+    /**
+     * @param directory directory of the disk tier, memory only when null
+     */
+    public ValidationResultCache(int maxEntries, Path directory, Instrumentation instrumentation) {
+        if (maxEntries < 0) {
+            throw new IllegalArgumentException("Cache limits must not be negative");
+        }
+        this.maxEntries = maxEntries;
+        this.directory = directory;
+        this.instrumentation = instrumentation;
+        if (directory != null) {
+            try {
+                Files.createDirectories(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Could not create the cache directory " + directory, e);
+            }
+        }
+    }
+
+    public static String hash(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        synchronized (FILE_HASHES) {
+            FileHash known = FILE_HASHES.get(key);
+            if (known != null && known.matches(attributes)) {
+                return known.hash;
+            }
+        }
+
+        long start = System.currentTimeMillis();
+        String hash = hashContent(key);
+        //not memoized when the file changed while it was read or could still change unnoticed
+        if (attributes.lastModifiedTime().toMillis() < start - TIMESTAMP_RESOLUTION_MILLIS
+                && new FileHash(Files.readAttributes(key, BasicFileAttributes.class), hash).matches(attributes)) {
+            synchronized (FILE_HASHES) {
+                FILE_HASHES.put(key, new FileHash(attributes, hash));
+                Iterator<FileHash> iterator = FILE_HASHES.values().iterator();
+                while (iterator.hasNext() && FILE_HASHES.size() > DEFAULT_MAX_ENTRIES) {
+                    iterator.next();
+                    iterator.remove();
+                }
+            }
+        }
+        return hash;
+    }
+
+    public static String hash(byte[] content) {
+        return toHex(newDigest().digest(content));
+    }
+
+    public static String hash(ByteBuffer content) {
+        MessageDigest digest = newDigest();
+        digest.update(content.duplicate());
+        return toHex(digest.digest());
+    }
+
+    /**
+     * Report for the content and configuration, null when not cached. The file name of the report is replaced.
+     */
+    public ValidationReport getReport(String contentHash, String configuration, String fileName) {
+        ValidationReport report = (ValidationReport) get(REPORT, contentHash, configuration);
+        return report == null ? null : copy(report, fileName);
+    }
+
+    public void putReport(String contentHash, String configuration, ValidationReport report) {
+        put(REPORT, contentHash, configuration, copy(report, report.getFileName()));
+    }
+
+    /**
+     * Overlap rectangles per page for the content and configuration, null when not cached.
+     */
+    public Map<Integer, Set<Rectangle>> getOverlaps(String contentHash, String configuration) {
+        OverlapResult overlaps = getOverlapResult(contentHash, configuration);
+        return overlaps == null ? null : overlaps.toMap();
+    }
+
+    public void putOverlaps(String contentHash, String configuration, Map<Integer, Set<Rectangle>> overlaps) {
+        putOverlapResult(contentHash, configuration, OverlapResult.of(overlaps));
+    }
+
+    public OverlapResult getOverlapResult(String contentHash, String configuration) {
+        return (OverlapResult) get(OVERLAPS, contentHash, configuration);
+    }
+
+    public void putOverlapResult(String contentHash, String configuration, OverlapResult overlaps) {
+        put(OVERLAPS, contentHash, configuration, overlaps);
+    }
+
+    /**
+     * Clears the memory tier, the disk tier is left untouched.
+     */
+    public synchronized void invalidateAll() {
+        results.clear();
+    }
+
+    public synchronized int size() {
+        return results.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    public long getDiskHitCount() {
+        return diskHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    private Object get(String kind, String contentHash, String configuration) {
+        String key = kind + '\n' + contentHash + '\n' + configuration;
+        synchronized (this) {
+            Object result = results.get(key);
+            if (result != null) {
+                hitCount.incrementAndGet();
+                instrumentation.increment(Counter.VALIDATION_CACHE_HITS, 1);
+                return result;
+            }
+        }
+
+        Object stored = directory == null ? null : read(kind, contentHash, configuration);
+        if (stored == null) {
+            missCount.incrementAndGet();
+            instrumentation.increment(Counter.VALIDATION_CACHE_MISSES, 1);
+            return null;
+        }
+        diskHitCount.incrementAndGet();
+        instrumentation.increment(Counter.VALIDATION_CACHE_HITS, 1);
+        remember(key, stored);
+        return stored;
+    }
+
+    private void put(String kind, String contentHash, String configuration, Object result) {
+        remember(kind + '\n' + contentHash + '\n' + configuration, result);
+        if (directory != null) {
+            write(kind, contentHash, configuration, result);
+        }
+    }
+
+    private synchronized void remember(String key, Object result) {
+        results.put(key, result);
+        Iterator<Object> iterator = results.values().iterator();
+        while (iterator.hasNext() && results.size() > maxEntries) {
+            iterator.next();
+            iterator.remove();
+            evictionCount.incrementAndGet();
+        }
+    }
+
+    private Path resolve(String kind, String contentHash, String configuration) {
+        String configurationHash = hash(configuration.getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+        return directory.resolve(contentHash + '-' + kind + '-' + configurationHash + ".bin");
+    }
+
+    private Object read(String kind, String contentHash, String configuration) {
+        Path file = resolve(kind, contentHash, configuration);
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            //the configuration is stored in full so a collision of the shortened file name hash is never a hit
+            if (in.readInt() != MAGIC || in.readInt() != FORMAT_VERSION || !contentHash.equals(in.readUTF())
+                    || !configuration.equals(in.readUTF())) {
+                return null;
+            }
+            return REPORT.equals(kind) ? readReport(in) : OverlapResultSerializer.read(in);
+        } catch (IOException | IllegalArgumentException e) {
+            log.debug(e.getMessage(), e);
+            return null;
+        }
+    }
+
+    private void write(String kind, String contentHash, String configuration, Object result) {
+        Path file = resolve(kind, contentHash, configuration);
+        Path temporary = null;
+        try {
+            temporary = Files.createTempFile(directory, contentHash, ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(contentHash);
+                out.writeUTF(configuration);
+                if (REPORT.equals(kind)) {
+                    writeReport(out, (ValidationReport) result);
+                } else {
+                    OverlapResultSerializer.write((OverlapResult) result, out);
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+            if (temporary != null) {
+                try {
+                    Files.deleteIfExists(temporary);
+                } catch (IOException ex) {
+                    log.debug(ex.getMessage(), ex);
+                }
+            }
+        }
+    }
+
+    private static void writeReport(DataOutputStream out, ValidationReport report) throws IOException {
+        out.writeUTF(report.getFileName());
+        out.writeInt(report.getResults().size());
+        for (CheckResult result : report.getResults().values()) {
+            out.writeUTF(result.getCheck().name());
+            out.writeBoolean(result.isPassed());
+            out.writeInt(result.getDetails().size());
+            for (String detail : result.getDetails()) {
+                out.writeUTF(detail);
+            }
+        }
+    }
+
+    private static ValidationReport readReport(DataInputStream in) throws IOException {
+        ValidationReport report = new ValidationReport(in.readUTF());
+        int resultCount = in.readInt();
+        for (int i = 0; i < resultCount; i++) {
+            ValidationCheck check = ValidationCheck.valueOf(in.readUTF());
+            boolean passed = in.readBoolean();
+            int detailCount = in.readInt();
+            List<String> details = new ArrayList<>(detailCount);
+            for (int j = 0; j < detailCount; j++) {
+                details.add(in.readUTF());
+            }
+            report.addResult(new CheckResult(check, passed, details));
+        }
+        return report;
+    }
+
+    private static ValidationReport copy(ValidationReport report, String fileName) {
+        ValidationReport copy = new ValidationReport(fileName);
+        for (CheckResult result : report.getResults().values()) {
+            copy.addResult(new CheckResult(result.getCheck(), result.isPassed(), new ArrayList<>(result.getDetails())));
+        }
+        return copy;
+    }
+
+    private static String hashContent(Path file) throws IOException {
+        MessageDigest digest = newDigest();
+        ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        char[] hex = new char[bytes.length * 2];
+        for (int i = 0; i < bytes.length; i++) {
+            hex[i * 2] = Character.forDigit((bytes[i] >> 4) & 0xF, 16);
+            hex[i * 2 + 1] = Character.forDigit(bytes[i] & 0xF, 16);
+        }
+        return new String(hex);
+    }
+
+    private static final class FileHash {
+        private final long size;
+        private final FileTime lastModified;
+        private final Object fileKey;
+        private final String hash;
+
+        private FileHash(BasicFileAttributes attributes, String hash) {
+            this.size = attributes.size();
+            this.lastModified = attributes.lastModifiedTime();
+            this.fileKey = attributes.fileKey();
+            this.hash = hash;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return size == attributes.size() && lastModified.equals(attributes.lastModifiedTime())
+                    && Objects.equals(fileKey, attributes.fileKey());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package be.speos.library.pdfvalidator.dto;
+
+import be.speos.library.pdfvalidator.enums.ValidationCheck;
+
+import java.util.Collections;
+import java.util.List;
+
+public class CheckResult {
+
+    private final ValidationCheck check;
+    private final boolean passed;
+    private final List<String> details;
+
+    public CheckResult(ValidationCheck check, boolean passed, List<String> details) {
+        this.check = check;
+        this.passed = passed;
+        this.details = Collections.unmodifiableList(details);
+    }
+
+    public static CheckResult passed(ValidationCheck check) {
+        return new CheckResult(check, true, Collections.<String>emptyList());
+    }
+
+    public static CheckResult failed(ValidationCheck check, List<String> details) {
+        return new CheckResult(check, false, details);
+    }
+
+    public ValidationCheck getCheck() {
+        return check;
+    }
+
+    public boolean isPassed() {
+        return passed;
+    }
+
+    /**
+     * Failing page numbers, unembedded font names or other check specific information.
+     */
+    public List<String> getDetails() {
+        return details;
+    }
+}
@@ -0,0 +1,49 @@
+package be.speos.library.pdfvalidator.dto;
+
+public class FontInfo {
+
+    private final String name;
+    private final String subtype;
+    private final String reference;
+    private final boolean embedded;
+    private final boolean subset;
+
+    public FontInfo(String name, String subtype, String reference, boolean embedded, boolean subset) {
+        this.name = name;
+        this.subtype = subtype;
+        this.reference = reference;
+        this.embedded = embedded;
+        this.subset = subset;
+    }
+
+    /**
+     * BaseFont of the font, null for Type3 fonts without a name.
+     */
+    public String getName() {
+        return name;
+    }
+
+    public String getSubtype() {
+        return subtype;
+    }
+
+    /**
+     * Indirect reference of the font dictionary, null when the font is a direct object.
+     */
+    public String getReference() {
+        return reference;
+    }
+
+    public boolean isEmbedded() {
+        return embedded;
+    }
+
+    public boolean isSubset() {
+        return subset;
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + subtype + (embedded ? ", embedded" : ", not embedded") + (subset ? ", subset" : "") + ")";
+    }
+}
@@ -0,0 +1,230 @@
+package be.speos.library.pdfvalidator.dto;
+
+import com.itextpdf.kernel.geom.Rectangle;
+
+import java.util.*;
+
+/**
+ * Overlap rectangles of a document stored in columns: the page numbers in ascending order, the offset of the
+ * first rectangle of every page and the rectangles packed as x, y, width, height in one float array.
+ * Pages without overlapping text are kept with zero rectangles. Instances are immutable.
+ */
+public final class OverlapResult {
+
+    public static final OverlapResult EMPTY = new OverlapResult(new int[0], new int[1], new float[0]);
+
+    private static final int FIELDS = 4;
+
+    private final int[] pageNumbers;
+    private final int[] rectangleOffsets;
+    private final float[] coordinates;
+
+    private OverlapResult(int[] pageNumbers, int[] rectangleOffsets, float[] coordinates) {
+        this.pageNumbers = pageNumbers;
+        this.rectangleOffsets = rectangleOffsets;
+        this.coordinates = coordinates;
+    }
+
+    /**
+     * Result over the given columns, the arrays are used as they are and must not be changed afterwards.
+     *
+     * @param pageNumbers      ascending page numbers
+     * @param rectangleOffsets one entry more than page numbers, the rectangles of page i are
+     *                         {@code rectangleOffsets[i]} up to {@code rectangleOffsets[i + 1]}
+     * @param coordinates      x, y, width and height of every rectangle
+     */
+    public static OverlapResult of(int[] pageNumbers, int[] rectangleOffsets, float[] coordinates) {
+        if (rectangleOffsets.length != pageNumbers.length + 1 || rectangleOffsets[0] != 0
+                || coordinates.length != (long) rectangleOffsets[pageNumbers.length] * FIELDS) {
+            throw new IllegalArgumentException("Page and rectangle columns do not match");
+        }
+        for (int i = 0; i < pageNumbers.length; i++) {
+            if (pageNumbers[i] < 1 || (i > 0 && pageNumbers[i] <= pageNumbers[i - 1])) {
+                throw new IllegalArgumentException("Page numbers must be positive and ascending");
+            }
+            if (rectangleOffsets[i + 1] < rectangleOffsets[i]) {
+                throw new IllegalArgumentException("Rectangle offsets must not decrease");
+            }
+        }
+        return new OverlapResult(pageNumbers, rectangleOffsets, coordinates);
+    }
+
+    public static OverlapResult of(Map<Integer, ? extends Collection<Rectangle>> rectangleMap) {
+        Builder builder = builder();
+        for (Map.Entry<Integer, ? extends Collection<Rectangle>> entry : new TreeMap<>(rectangleMap).entrySet()) {
+            builder.addPage(entry.getKey(), entry.getValue());
+        }
+        return builder.build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public int getPageCount() {
+        return pageNumbers.length;
+    }
+
+    public int getPageNumber(int pageIndex) {
+        return pageNumbers[pageIndex];
+    }
+
+    /**
+     * Index of the page number, negative when the page is not part of the result.
+     */
+    public int indexOf(int pageNumber) {
+        return Arrays.binarySearch(pageNumbers, pageNumber);
+    }
+
+    /**
+     * Index of the first rectangle of the page, the rectangles of a page are consecutive.
+     */
+    public int getFirstRectangle(int pageIndex) {
+        return rectangleOffsets[pageIndex];
+    }
+
+    public int getRectangleCount(int pageIndex) {
+        return rectangleOffsets[pageIndex + 1] - rectangleOffsets[pageIndex];
+    }
+
+    public int getRectangleCount() {
+        return rectangleOffsets[pageNumbers.length];
+    }
+
+    public float getX(int rectangle) {
+        return coordinates[rectangle * FIELDS];
+    }
+
+    public float getY(int rectangle) {
+        return coordinates[rectangle * FIELDS + 1];
+    }
+
+    public float getWidth(int rectangle) {
+        return coordinates[rectangle * FIELDS + 2];
+    }
+
+    public float getHeight(int rectangle) {
+        return coordinates[rectangle * FIELDS + 3];
+    }
+
+    public Rectangle getRectangle(int rectangle) {
+        int offset = rectangle * FIELDS;
+        return new Rectangle(coordinates[offset], coordinates[offset + 1], coordinates[offset + 2], coordinates[offset + 3]);
+    }
+
+    /**
+     * Rectangles of the page, empty when the page has none or is not part of the result.
+     */
+    public Set<Rectangle> getRectangles(int pageNumber) {
+        int pageIndex = indexOf(pageNumber);
+        Set<Rectangle> rectangles = new HashSet<>();
+        if (pageIndex >= 0) {
+            for (int i = rectangleOffsets[pageIndex]; i < rectangleOffsets[pageIndex + 1]; i++) {
+                rectangles.add(getRectangle(i));
+            }
+        }
+        return rectangles;
+    }
+
+    /**
+     * Page numbers with at least one rectangle.
+     */
+    public List<Integer> getOverlappingPages() {
+        List<Integer> overlappingPages = new ArrayList<>();
+        for (int i = 0; i < pageNumbers.length; i++) {
+            if (getRectangleCount(i) > 0) {
+                overlappingPages.add(pageNumbers[i]);
+            }
+        }
+        return overlappingPages;
+    }
+
+    public Map<Integer, Set<Rectangle>> toMap() {
+        Map<Integer, Set<Rectangle>> rectangleMap = new TreeMap<>();
+        for (int pageNumber : pageNumbers) {
+            rectangleMap.put(pageNumber, getRectangles(pageNumber));
+        }
+        return rectangleMap;
+    }
+
+    /**
+     * Copies of the columns, in the layout {@link #of(int[], int[], float[])} accepts.
+     */
+    public int[] getPageNumbers() {
+        return pageNumbers.clone();
+    }
+
+    public int[] getRectangleOffsets() {
+        return rectangleOffsets.clone();
+    }
+
+    public float[] getCoordinates() {
+        return coordinates.clone();
+    }
+
+    /**
+     * Collects pages in ascending page order.
+     */
+    public static final class Builder {
+        private int[] pageNumbers = new int[16];
+        private int[] rectangleOffsets = new int[17];
+        private float[] coordinates = new float[16 * FIELDS];
+        private int pageCount;
+
+        private Builder() {
+        }
+
+        public Builder addPage(int pageNumber, Collection<Rectangle> rectangles) {
+            startPage(pageNumber, rectangles.size());
+            int offset = rectangleOffsets[pageCount] * FIELDS;
+            for (Rectangle rectangle : rectangles) {
+                coordinates[offset++] = rectangle.getX();
+                coordinates[offset++] = rectangle.getY();
+                coordinates[offset++] = rectangle.getWidth();
+                coordinates[offset++] = rectangle.getHeight();
+            }
+            endPage(rectangles.size());
+            return this;
+        }
+
+        /**
+         * Appends all pages of the result, which must all come after the pages added so far.
+         */
+        public Builder addAll(OverlapResult result) {
+            for (int i = 0; i < result.getPageCount(); i++) {
+                int count = result.getRectangleCount(i);
+                startPage(result.getPageNumber(i), count);
+                System.arraycopy(result.coordinates, result.getFirstRectangle(i) * FIELDS, coordinates,
+                        rectangleOffsets[pageCount] * FIELDS, count * FIELDS);
+                endPage(count);
+            }
+            return this;
+        }
+
+        public OverlapResult build() {
+            int rectangleCount = rectangleOffsets[pageCount];
+            return new OverlapResult(Arrays.copyOf(pageNumbers, pageCount), Arrays.copyOf(rectangleOffsets, pageCount + 1),
+                    Arrays.copyOf(coordinates, rectangleCount * FIELDS));
+        }
+
+        private void startPage(int pageNumber, int rectangleCount) {
+            if (pageNumber < 1 || (pageCount > 0 && pageNumber <= pageNumbers[pageCount - 1])) {
+                throw new IllegalArgumentException("Pages must be added in ascending order, got " + pageNumber);
+            }
+            if (pageCount == pageNumbers.length) {
+                pageNumbers = Arrays.copyOf(pageNumbers, pageCount * 2);
+                rectangleOffsets = Arrays.copyOf(rectangleOffsets, pageCount * 2 + 1);
+            }
+            int required = (rectangleOffsets[pageCount] + rectangleCount) * FIELDS;
+            if (required > coordinates.length) {
+                coordinates = Arrays.copyOf(coordinates, Math.max(required, coordinates.length * 2));
+            }
+            pageNumbers[pageCount] = pageNumber;
+        }
+
+        private void endPage(int rectangleCount) {
+            rectangleOffsets[pageCount + 1] = rectangleOffsets[pageCount] + rectangleCount;
+            pageCount++;
+        }
+    }
+}
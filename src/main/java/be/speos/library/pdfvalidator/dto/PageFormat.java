@@ -0,0 +1,55 @@
+package be.speos.library.pdfvalidator.dto;
+
+import be.speos.library.pdfvalidator.enums.PageOrientation;
+
+/**
+ * Named page size in points. A page matches when its displayed width and height are both strictly within the
+ * tolerance of the size, in one of the orientations the format allows.
+ */
+public class PageFormat {
+
+    private final String name;
+    private final float width;
+    private final float height;
+    private final float tolerance;
+    private final PageOrientation orientation;
+
+    public PageFormat(String name, float width, float height, float tolerance, PageOrientation orientation) {
+        if (name == null || orientation == null) {
+            throw new IllegalArgumentException("A page format needs a name and an orientation");
+        }
+        if (!(width >= 0) || !(height >= 0) || !(tolerance >= 0) || Float.isInfinite(width + height + tolerance)) {
+            throw new IllegalArgumentException("Invalid size for page format " + name);
+        }
+        this.name = name;
+        this.width = width;
+        this.height = height;
+        this.tolerance = tolerance;
+        this.orientation = orientation;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public float getTolerance() {
+        return tolerance;
+    }
+
+    public PageOrientation getOrientation() {
+        return orientation;
+    }
+
+    @Override
+    public String toString() {
+        return name + " " + width + "x" + height + " tolerance " + tolerance + " " + orientation;
+    }
+}
@@ -0,0 +1,72 @@
+package be.speos.library.pdfvalidator.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Format of every page of a document, so overlays can be picked per page format after a single scan.
+ */
+public class PageFormatReport {
+
+    private final PageFormat[] pageFormats;
+    private final boolean[] landscape;
+
+    /**
+     * @param pageFormats format of every page in page order, null for pages that match no format
+     * @param landscape   whether the page is displayed with the long side as width, in page order
+     */
+    public PageFormatReport(PageFormat[] pageFormats, boolean[] landscape) {
+        if (pageFormats.length != landscape.length) {
+            throw new IllegalArgumentException("Every page needs a format and an orientation");
+        }
+        this.pageFormats = pageFormats.clone();
+        this.landscape = landscape.clone();
+    }
+
+    public int getPageCount() {
+        return pageFormats.length;
+    }
+
+    /**
+     * Format of the page, null when the page matches no format.
+     */
+    public PageFormat getFormat(int pageNumber) {
+        return pageFormats[pageNumber - 1];
+    }
+
+    public boolean isLandscape(int pageNumber) {
+        return landscape[pageNumber - 1];
+    }
+
+    /**
+     * Pages with the named format, in page order.
+     */
+    public List<Integer> getPages(String formatName) {
+        List<Integer> pages = new ArrayList<>();
+        for (int i = 0; i < pageFormats.length; i++) {
+            if (pageFormats[i] != null && pageFormats[i].getName().equals(formatName)) {
+                pages.add(i + 1);
+            }
+        }
+        return pages;
+    }
+
+    public List<Integer> getUnmatchedPages() {
+        List<Integer> pages = new ArrayList<>();
+        for (int i = 0; i < pageFormats.length; i++) {
+            if (pageFormats[i] == null) {
+                pages.add(i + 1);
+            }
+        }
+        return pages;
+    }
+
+    public boolean isValid() {
+        for (PageFormat pageFormat : pageFormats) {
+            if (pageFormat == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
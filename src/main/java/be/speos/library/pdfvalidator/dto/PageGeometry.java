@@ -0,0 +1,40 @@
+package be.speos.library.pdfvalidator.dto;
+
+/**
+ * Size of a page as it is displayed, so with the page rotation applied to the media box.
+ */
+public class PageGeometry {
+
+    private final int pageNumber;
+    private final float width;
+    private final float height;
+    private final int rotation;
+
+    public PageGeometry(int pageNumber, float width, float height, int rotation) {
+        this.pageNumber = pageNumber;
+        this.width = width;
+        this.height = height;
+        this.rotation = rotation;
+    }
+
+    public int getPageNumber() {
+        return pageNumber;
+    }
+
+    public float getWidth() {
+        return width;
+    }
+
+    public float getHeight() {
+        return height;
+    }
+
+    public int getRotation() {
+        return rotation;
+    }
+
+    @Override
+    public String toString() {
+        return "page " + pageNumber + ": " + width + "x" + height + (rotation != 0 ? " rotated " + rotation : "");
+    }
+}
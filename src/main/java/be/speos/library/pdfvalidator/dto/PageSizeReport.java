@@ -0,0 +1,36 @@
+package be.speos.library.pdfvalidator.dto;
+
+import java.util.Collections;
+import java.util.List;
+
+public class PageSizeReport {
+
+    private final int scannedPages;
+    private final boolean complete;
+    private final List<PageGeometry> failingPages;
+
+    public PageSizeReport(int scannedPages, boolean complete, List<PageGeometry> failingPages) {
+        this.scannedPages = scannedPages;
+        this.complete = complete;
+        this.failingPages = Collections.unmodifiableList(failingPages);
+    }
+
+    public int getScannedPages() {
+        return scannedPages;
+    }
+
+    /**
+     * False when a fail fast scan stopped before the last page.
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public List<PageGeometry> getFailingPages() {
+        return failingPages;
+    }
+
+    public boolean isValid() {
+        return failingPages.isEmpty();
+    }
+}
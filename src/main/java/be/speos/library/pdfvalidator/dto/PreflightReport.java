@@ -0,0 +1,53 @@
+package be.speos.library.pdfvalidator.dto;
+
+public class PreflightReport {
+
+    public static final int UNKNOWN_PAGE_COUNT = -1;
+
+    private final long fileSize;
+    private final int pageCount;
+    private final boolean encrypted;
+    private final boolean passwordRequired;
+
+    public PreflightReport(long fileSize, int pageCount, boolean encrypted, boolean passwordRequired) {
+        this.fileSize = fileSize;
+        this.pageCount = pageCount;
+        this.encrypted = encrypted;
+        this.passwordRequired = passwordRequired;
+    }
+
+    /**
+     * Size of the file in bytes.
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * {@link #UNKNOWN_PAGE_COUNT} when a password is required.
+     */
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    /**
+     * Average weight of a page in megabytes, NaN when the page count is unknown.
+     */
+    public double getAveragePageWeight() {
+        if (pageCount == UNKNOWN_PAGE_COUNT) {
+            return Double.NaN;
+        }
+        return fileSize / 1024.0 / 1024.0 / pageCount;
+    }
+
+    public boolean isEncrypted() {
+        return encrypted;
+    }
+
+    /**
+     * True when the document cannot be opened without a user password.
+     */
+    public boolean isPasswordRequired() {
+        return passwordRequired;
+    }
+}
@@ -0,0 +1,42 @@
+package be.speos.library.pdfvalidator.dto;
+
+import be.speos.library.pdfvalidator.enums.ValidationCheck;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+public class ValidationReport {
+
+    private final String fileName;
+    private final Map<ValidationCheck, CheckResult> results = new EnumMap<>(ValidationCheck.class);
+
+    public ValidationReport(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public void addResult(CheckResult result) {
+        results.put(result.getCheck(), result);
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public CheckResult getResult(ValidationCheck check) {
+        return results.get(check);
+    }
+
+    public Map<ValidationCheck, CheckResult> getResults() {
+        return Collections.unmodifiableMap(results);
+    }
+
+    public boolean isValid() {
+        for (CheckResult result : results.values()) {
+            if (!result.isPassed()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
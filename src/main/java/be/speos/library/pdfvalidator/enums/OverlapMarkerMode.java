@@ -0,0 +1,10 @@
+package be.speos.library.pdfvalidator.enums;
+
+/**
+ * Content - the markers are drawn into the page content
+ * Annotations - every overlapping rectangle becomes a square annotation, the page content is left untouched
+ */
+public enum OverlapMarkerMode {
+    CONTENT,
+    ANNOTATIONS
+}
@@ -0,0 +1,12 @@
+package be.speos.library.pdfvalidator.enums;
+
+/**
+ * Portrait - the page is displayed with the short side as width
+ * Landscape - the page is displayed with the long side as width
+ * Any - both orientations match
+ */
+public enum PageOrientation {
+    PORTRAIT,
+    LANDSCAPE,
+    ANY
+}
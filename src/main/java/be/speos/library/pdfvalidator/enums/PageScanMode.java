@@ -0,0 +1,10 @@
+package be.speos.library.pdfvalidator.enums;
+
+/**
+ * Fail fast - scanning stops at the first page that is out of tolerance
+ * Full report - every page is scanned and every page that is out of tolerance is reported
+ */
+public enum PageScanMode {
+    FAIL_FAST,
+    FULL_REPORT
+}
@@ -21,4 +21,13 @@ public enum PageType {
     public String getPageTypeName() {
         return pageTypeName;
     }
+
+    public static PageType fromPageTypeName(String pageTypeName) {
+        for (PageType pageType : values()) {
+            if (pageType.pageTypeName.equals(pageTypeName)) {
+                return pageType;
+            }
+        }
+        throw new IllegalArgumentException("Unknown page type " + pageTypeName);
+    }
 }
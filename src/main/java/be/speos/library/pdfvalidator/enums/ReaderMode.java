@@ -0,0 +1,11 @@
+package be.speos.library.pdfvalidator.enums;
+
+/**
+ * Default - iText picks the source, small files are mapped at once, large files through a paged mapping
+ * Random access - for file systems where mapping fails, the file is read on demand with plain random access reads
+ * through a buffer of at most 4 KB, nothing is mapped up front
+ */
+public enum ReaderMode {
+    DEFAULT,
+    RANDOM_ACCESS
+}
@@ -0,0 +1,18 @@
+package be.speos.library.pdfvalidator.enums;
+
+/**
+ * Password - the document can be opened without a user password
+ * Same size - every page matches the configured page dimensions
+ * Embedded fonts - every font used by the document is embedded
+ * Page weight - the average page weight stays under the allowed limit
+ * Overlapping - no text or image crosses a red guide line of the validated document itself. The engine runs it on
+ * the file it is given, while {@code PDFValidator.validateOverlapping} checks the manipulated copy in the
+ * {@code overlay} directory next to it and returns true when it does find overlaps.
+ */
+public enum ValidationCheck {
+    PASSWORD,
+    SAME_SIZE,
+    EMBEDDED_FONTS,
+    PAGE_WEIGHT,
+    OVERLAPPING
+}
@@ -0,0 +1,13 @@
+package be.speos.library.pdfvalidator.metrics;
+
+public enum Counter {
+    PAGES,
+    OVERLAYS_APPLIED,
+    OVERLAP_RECTANGLES,
+    OVERLAY_CACHE_HITS,
+    OVERLAY_CACHE_MISSES,
+    OVERLAY_PLAN_CACHE_HITS,
+    OVERLAY_PLAN_CACHE_MISSES,
+    VALIDATION_CACHE_HITS,
+    VALIDATION_CACHE_MISSES
+}
@@ -0,0 +1,52 @@
+package be.speos.library.pdfvalidator.metrics;
+
+/**
+ * Receives timings, counters and errors from the validator and the manipulator. Callers only read the clock when
+ * {@link #isEnabled()} is true, so the {@link #NOOP} instrumentation costs a field read and a branch per hook.
+ * Implementations are called from many threads at once and must be thread-safe.
+ */
+public interface Instrumentation {
+
+    Instrumentation NOOP = new Instrumentation() {
+        @Override
+        public boolean isEnabled() {
+            return false;
+        }
+
+        @Override
+        public void recordTime(Phase phase, long nanos) {
+        }
+
+        @Override
+        public void increment(Counter counter, long amount) {
+        }
+
+        @Override
+        public void recordError(Phase phase, Throwable error) {
+        }
+    };
+
+    boolean isEnabled();
+
+    void recordTime(Phase phase, long nanos);
+
+    void increment(Counter counter, long amount);
+
+    /**
+     * Errors that are handled or swallowed by the library, thrown errors are left to the caller.
+     */
+    void recordError(Phase phase, Throwable error);
+
+    /**
+     * Start of a timing, zero when disabled.
+     */
+    default long startTimer() {
+        return isEnabled() ? System.nanoTime() : 0L;
+    }
+
+    default void stopTimer(Phase phase, long start) {
+        if (start != 0L) {
+            recordTime(phase, System.nanoTime() - start);
+        }
+    }
+}
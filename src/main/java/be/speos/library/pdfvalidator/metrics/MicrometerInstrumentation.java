@@ -0,0 +1,56 @@
+package be.speos.library.pdfvalidator.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publishes to a Micrometer registry. Phases become the {@code pdf.validator.phase} timer tagged with the phase,
+ * counters become {@code pdf.validator.<counter>} counters and handled errors are counted in
+ * {@code pdf.validator.errors} tagged with the phase and the exception class.
+ * Micrometer is an optional dependency, add it to the application to use this class.
+ */
+public class MicrometerInstrumentation implements Instrumentation {
+
+    private final MeterRegistry registry;
+    private final Map<Phase, Timer> timers = new EnumMap<>(Phase.class);
+    private final Map<Counter, io.micrometer.core.instrument.Counter> counters = new EnumMap<>(Counter.class);
+
+    public MicrometerInstrumentation(MeterRegistry registry) {
+        this.registry = registry;
+        for (Phase phase : Phase.values()) {
+            timers.put(phase, Timer.builder("pdf.validator.phase").tag("phase", tagValue(phase)).register(registry));
+        }
+        for (Counter counter : Counter.values()) {
+            counters.put(counter, io.micrometer.core.instrument.Counter.builder("pdf.validator." + tagValue(counter)).register(registry));
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return true;
+    }
+
+    @Override
+    public void recordTime(Phase phase, long nanos) {
+        timers.get(phase).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void increment(Counter counter, long amount) {
+        counters.get(counter).increment(amount);
+    }
+
+    @Override
+    public void recordError(Phase phase, Throwable error) {
+        registry.counter("pdf.validator.errors", "phase", tagValue(phase), "exception", error.getClass().getSimpleName()).increment();
+    }
+
+    private static String tagValue(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '.');
+    }
+}
@@ -0,0 +1,41 @@
+package be.speos.library.pdfvalidator.metrics;
+
+import be.speos.library.pdfvalidator.enums.ValidationCheck;
+
+/**
+ * Preflight - probing the trailer for encryption, or reading size, page count and encryption through the cross-reference table
+ * Open - reading the xref and trailer and creating the document
+ * Validate - one validation check on an open document
+ * Page parse - content parsing of one page during overlap detection
+ * Overlay copy - copying an overlay page into the destination document
+ * Write - writing and closing the destination document
+ */
+public enum Phase {
+    PREFLIGHT,
+    OPEN,
+    VALIDATE_PASSWORD,
+    VALIDATE_SAME_SIZE,
+    VALIDATE_EMBEDDED_FONTS,
+    VALIDATE_PAGE_WEIGHT,
+    VALIDATE_OVERLAPPING,
+    PAGE_PARSE,
+    OVERLAY_COPY,
+    WRITE;
+
+    public static Phase of(ValidationCheck check) {
+        switch (check) {
+            case PASSWORD:
+                return VALIDATE_PASSWORD;
+            case SAME_SIZE:
+                return VALIDATE_SAME_SIZE;
+            case EMBEDDED_FONTS:
+                return VALIDATE_EMBEDDED_FONTS;
+            case PAGE_WEIGHT:
+                return VALIDATE_PAGE_WEIGHT;
+            case OVERLAPPING:
+                return VALIDATE_OVERLAPPING;
+            default:
+                throw new IllegalArgumentException("Unsupported validation check " + check);
+        }
+    }
+}
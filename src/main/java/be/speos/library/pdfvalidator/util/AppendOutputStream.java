@@ -0,0 +1,65 @@
+package be.speos.library.pdfvalidator.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Destination of an incremental update. iText starts an append mode document by copying the original bytes
+ * through the writer. Those first {@code originalLength} bytes are dropped here and the original is written by
+ * the {@link OriginalWriter} instead, right before the first appended byte, so it can be copied without going
+ * through iText. The writer still counts the dropped bytes, so the offsets in the appended xref stay correct.
+ */
+final class AppendOutputStream extends OutputStream {
+
+    interface OriginalWriter {
+        void writeTo(OutputStream destination) throws IOException;
+    }
+
+    private final OutputStream destination;
+    private final OriginalWriter originalWriter;
+    private long remainingOriginal;
+    private boolean originalWritten;
+
+    AppendOutputStream(OutputStream destination, long originalLength, OriginalWriter originalWriter) {
+        this.destination = destination;
+        this.remainingOriginal = originalLength;
+        this.originalWriter = originalWriter;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (remainingOriginal > 0) {
+            remainingOriginal--;
+            return;
+        }
+        writeOriginal();
+        destination.write(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        int skipped = (int) Math.min(remainingOriginal, len);
+        remainingOriginal -= skipped;
+        if (skipped < len) {
+            writeOriginal();
+            destination.write(b, off + skipped, len - skipped);
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        destination.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        destination.close();
+    }
+
+    private void writeOriginal() throws IOException {
+        if (!originalWritten) {
+            originalWritten = true;
+            originalWriter.writeTo(destination);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package be.speos.library.pdfvalidator.util;
+
+import com.itextpdf.io.source.IRandomAccessSource;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Random access view over the remaining bytes of a buffer, so heap and direct buffers can be parsed
+ * without copying them into a byte array first. The caller's buffer position is never changed.
+ */
+class ByteBufferSource implements IRandomAccessSource {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferSource(ByteBuffer buffer) {
+        this.buffer = buffer.slice();
+    }
+
+    @Override
+    public int get(long position) {
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+        return buffer.get((int) position) & 0xff;
+    }
+
+    @Override
+    public int get(long position, byte[] bytes, int off, int len) {
+        if (position >= buffer.limit()) {
+            return -1;
+        }
+        int count = (int) Math.min(len, buffer.limit() - position);
+        ByteBuffer view = buffer.duplicate();
+        view.position((int) position);
+        view.get(bytes, off, count);
+        return count;
+    }
+
+    @Override
+    public long length() {
+        return buffer.limit();
+    }
+
+    @Override
+    public void close() {
+        // the buffer is owned by the caller
+    }
+}
@@ -2,9 +2,9 @@ package be.speos.library.pdfvalidator.util;
 
 public class DimensionChecker {
 
-    private float a4Width;
-    private float a4Height;
-    private float a4Tolerance;
+    private final float a4Width;
+    private final float a4Height;
+    private final float a4Tolerance;
 
     public DimensionChecker(float a4Width, float a4Height, float a4Tolerance) {
         this.a4Width = a4Width;
@@ -12,6 +12,18 @@ public class DimensionChecker {
         this.a4Tolerance = a4Tolerance;
     }
 
+    public float getWidth() {
+        return a4Width;
+    }
+
+    public float getHeight() {
+        return a4Height;
+    }
+
+    public float getTolerance() {
+        return a4Tolerance;
+    }
+
     public boolean checkWidth(float actualWidth){
         return a4Width + a4Tolerance > actualWidth && a4Width - a4Tolerance < actualWidth;
     }
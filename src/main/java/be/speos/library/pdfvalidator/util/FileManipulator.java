@@ -1,50 +1,126 @@
 package be.speos.library.pdfvalidator.util;
 
+import be.speos.library.pdfvalidator.cache.OverlayPlanCache;
+import be.speos.library.pdfvalidator.cache.OverlayTemplateCache;
+import be.speos.library.pdfvalidator.cache.ValidationResultCache;
+import be.speos.library.pdfvalidator.dto.OverlapResult;
 import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.enums.OverlapMarkerMode;
 import be.speos.library.pdfvalidator.enums.OverlayListType;
-import be.speos.library.pdfvalidator.dto.PageSelectionDto;
-import be.speos.library.pdfvalidator.enums.PageType;
+import be.speos.library.pdfvalidator.enums.ReaderMode;
 import be.speos.library.pdfvalidator.exception.PDFValidatorPasswordException;
-import com.itextpdf.kernel.colors.DeviceRgb;
+import be.speos.library.pdfvalidator.metrics.Counter;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+import be.speos.library.pdfvalidator.metrics.Phase;
+import com.itextpdf.io.util.StreamUtil;
+import com.itextpdf.kernel.PdfException;
 import com.itextpdf.kernel.crypto.BadPasswordException;
 import com.itextpdf.kernel.geom.Rectangle;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfReader;
-import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.*;
 import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
-import com.itextpdf.kernel.pdf.canvas.parser.PdfDocumentContentParser;
 import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
-import com.itextpdf.layout.Document;
-import com.itextpdf.layout.element.Paragraph;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
-import java.util.stream.Collectors;
-
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Applies overlays and overlap markers to documents. The configuration is immutable and every call works on its
+ * own documents, so one instance built with {@link #builder()} can be shared by any number of threads.
+ * Overlay files are shared through the thread-safe {@link OverlayTemplateCache}.
+ * With parallel stamping large documents are split into page chunks that are stamped concurrently on separate
+ * documents and merged in page order. In low-memory mode every page is written as soon as its overlays are applied.
+ */
 public class FileManipulator {
 
     private static final Logger log = LoggerFactory.getLogger(FileManipulator.class);
-    private DimensionChecker pdfDimensionChecker;
-    private String overlayPath;
-    private static FileManipulator fileManipulator;
 
+    //catalog entries that are copied into a merged document, other entries need a sequential stamp
+    private static final Set<PdfName> CHUNKABLE_CATALOG_KEYS = new HashSet<>(Arrays.asList(PdfName.Type, PdfName.Pages, PdfName.Metadata,
+            PdfName.ViewerPreferences, PdfName.PageLayout, PdfName.PageMode, PdfName.Lang));
+
+    private final PageSizeProfile pageSizeProfile;
+    private final String overlayPath;
+    private final OverlayTemplateCache overlayTemplateCache;
+    private final ReaderMode readerMode;
+    private final OverlapDetector overlapDetector;
+    private final OverlayPlanCache overlayPlanCache;
+    private final boolean appendMode;
+    private final Instrumentation instrumentation;
+    private final ExecutorService stampingExecutor;
+    private final int pagesPerChunk;
+    private final boolean lowMemory;
+    private final OverlapMarkerMode overlapMarkerMode;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * @deprecated creates a new manipulator on every call, use {@link #builder()} and share the instance
+     */
+    @Deprecated
     public static FileManipulator getInstance(DimensionChecker dimensionChecker, String overlayPath) {
+        return builder().dimensionChecker(dimensionChecker).overlayPath(overlayPath).build();
+    }
 
-        if (fileManipulator == null) {
-            return new FileManipulator(dimensionChecker, overlayPath);
-        }
-        return fileManipulator;
+    /**
+     * @deprecated creates a new manipulator on every call, use {@link #builder()} and share the instance
+     */
+    @Deprecated
+    public static FileManipulator getInstance(DimensionChecker dimensionChecker, String overlayPath, OverlayTemplateCache overlayTemplateCache) {
+        return builder().dimensionChecker(dimensionChecker).overlayPath(overlayPath).overlayTemplateCache(overlayTemplateCache).build();
+    }
+
+    /**
+     * @deprecated creates a new manipulator on every call, use {@link #builder()} and share the instance
+     */
+    @Deprecated
+    public static FileManipulator getInstance(DimensionChecker dimensionChecker, String overlayPath, OverlayTemplateCache overlayTemplateCache, ReaderMode readerMode) {
+        return builder().dimensionChecker(dimensionChecker).overlayPath(overlayPath).overlayTemplateCache(overlayTemplateCache)
+                .readerMode(readerMode).build();
     }
 
-    private FileManipulator(DimensionChecker dimensionChecker, String overlayPath) {
-        this.pdfDimensionChecker = dimensionChecker;
-        this.overlayPath = overlayPath;
+    private FileManipulator(Builder builder) {
+        this.pageSizeProfile = builder.pageSizeProfile;
+        this.overlayPath = builder.overlayPath;
+        this.instrumentation = builder.instrumentation;
+        if (builder.overlayTemplateCache != null) {
+            this.overlayTemplateCache = builder.overlayTemplateCache;
+        } else if (builder.ownCache) {
+            this.overlayTemplateCache = new OverlayTemplateCache(builder.cacheMaxEntries, builder.cacheMaxBytes, builder.instrumentation);
+        } else {
+            this.overlayTemplateCache = OverlayTemplateCache.getDefault();
+        }
+        this.readerMode = builder.readerMode;
+        this.overlapDetector = builder.overlapDetector != null
+                ? builder.overlapDetector
+                : OverlapDetector.builder().executor(builder.executor).readerMode(builder.readerMode)
+                        .instrumentation(builder.instrumentation).resultCache(builder.resultCache).build();
+        this.appendMode = builder.appendMode;
+        this.stampingExecutor = builder.stampingExecutor;
+        this.pagesPerChunk = builder.pagesPerChunk;
+        this.lowMemory = builder.lowMemory;
+        this.overlapMarkerMode = builder.overlapMarkerMode;
+        this.overlayPlanCache = builder.overlayPlanCache != null
+                ? builder.overlayPlanCache
+                : new OverlayPlanCache(OverlayPlanCache.DEFAULT_MAX_ENTRIES, builder.instrumentation);
     }
 
     public byte[] manipulateFile(Path originalPath, Path destinationPath, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws PDFValidatorPasswordException {
@@ -57,88 +133,463 @@ public class FileManipulator {
             throw new PDFValidatorPasswordException(ex);
         } catch (IOException e) {
             log.error(e.getMessage());
+            instrumentation.recordError(Phase.OVERLAY_COPY, e);
         }
         return bytes;
     }
 
 
     public byte[] manipulateFileWithOverlappingValidation(Path filePath, String sessionPath, String fileName) {
+        return manipulateFileWithOverlappingValidation(filePath, sessionPath, fileName, overlapDetector);
+    }
+
+    public byte[] manipulateFileWithOverlappingValidation(Path filePath, String sessionPath, String fileName, OverlapDetector overlapDetector) {
         byte[] bytes = new byte[0];
 
-        try (PdfReader reader = new PdfReader(filePath.toString())) {
-            PdfDocument document = new PdfDocument(reader);
-            PdfDocumentContentParser contentParser = new PdfDocumentContentParser(document);
-            Map<Integer, Set<Rectangle>> rectangleMap = new HashMap<>();
-            for (int i = 1; i <= document.getNumberOfPages(); i++) {
-                OverlappingTextSearchingStrategy strategy = contentParser.processContent(i, new OverlappingTextSearchingStrategy());
-                Set<Rectangle> overlappingRectangle = strategy.foundOverlappingText();
-                rectangleMap.put(i, overlappingRectangle);
-            }
-            bytes = applyOverlapping(sessionPath, fileName, rectangleMap);
+        try {
+            OverlapResult overlapResult = overlapDetector.detectResult(filePath);
+            bytes = applyOverlapping(sessionPath, fileName, overlapResult);
         } catch (Exception e) {
             log.error(e.getMessage());
+            instrumentation.recordError(Phase.PAGE_PARSE, e);
             try {
                 bytes = Files.readAllBytes(filePath);
             } catch (IOException em) {
                 log.error(em.getMessage());
+                instrumentation.recordError(Phase.WRITE, em);
             }
         }
         return bytes;
     }
 
-    private byte[] applyOverlapping(String sessionPath, String fileName, Map<Integer, Set<Rectangle>> recMap) throws IOException {
+    /**
+     * Marks the overlapping text of a stored result, for example one loaded with {@link OverlapResultSerializer},
+     * without parsing the document again. Reads and writes the same files as
+     * {@link #manipulateFileWithOverlappingValidation(Path, String, String)}.
+     */
+    public byte[] manipulateFileWithOverlapResult(String sessionPath, String fileName, OverlapResult overlapResult) throws IOException {
+        return applyOverlapping(sessionPath, fileName, overlapResult);
+    }
+
+    /**
+     * Applies the overlays to a document read from the stream and writes the result straight to the destination,
+     * without temporary files. The destination stream is not closed.
+     */
+    public void manipulateFile(InputStream source, OutputStream destination, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, PDFValidatorPasswordException {
+        if (appendMode || stampingExecutor != null) {
+            manipulateFile(ByteBuffer.wrap(StreamUtil.inputStreamToArray(source)), destination, overlayDetailMap);
+            return;
+        }
+        manipulateFile(new PdfReader(source), destination, overlayDetailMap);
+    }
+
+    public void manipulateFile(ByteBuffer source, OutputStream destination, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, PDFValidatorPasswordException {
+        if (appendMode) {
+            try {
+                appendPdfOverlay(() -> new PdfReader(new ByteBufferSource(source), new ReaderProperties()), destination,
+                        source.remaining(), output -> writeBuffer(source, output), overlayDetailMap);
+            } catch (BadPasswordException ex) {
+                throw new PDFValidatorPasswordException(ex);
+            }
+            return;
+        }
+        if (stampingExecutor != null) {
+            try {
+                stampInChunks(() -> new PdfReader(new ByteBufferSource(source), new ReaderProperties()), destination, overlayDetailMap);
+            } catch (BadPasswordException ex) {
+                throw new PDFValidatorPasswordException(ex);
+            }
+            return;
+        }
+        manipulateFile(new PdfReader(new ByteBufferSource(source), new ReaderProperties()), destination, overlayDetailMap);
+    }
+
+    public void manipulateFile(InputStream source, WritableByteChannel destination, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, PDFValidatorPasswordException {
+        manipulateFile(source, Channels.newOutputStream(destination), overlayDetailMap);
+    }
+
+    public void manipulateFile(ByteBuffer source, WritableByteChannel destination, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, PDFValidatorPasswordException {
+        manipulateFile(source, Channels.newOutputStream(destination), overlayDetailMap);
+    }
+
+    /**
+     * Marks the overlapping text of a document read from the stream and writes the result straight to the destination.
+     * When the overlap detection fails the original document is written unchanged. The destination stream is not closed.
+     */
+    public void manipulateFileWithOverlappingValidation(InputStream source, OutputStream destination) throws IOException {
+        manipulateFileWithOverlappingValidation(ByteBuffer.wrap(StreamUtil.inputStreamToArray(source)), destination, overlapDetector);
+    }
+
+    public void manipulateFileWithOverlappingValidation(ByteBuffer source, OutputStream destination) throws IOException {
+        manipulateFileWithOverlappingValidation(source, destination, overlapDetector);
+    }
+
+    public void manipulateFileWithOverlappingValidation(ByteBuffer source, WritableByteChannel destination, OverlapDetector overlapDetector) throws IOException {
+        manipulateFileWithOverlappingValidation(source, Channels.newOutputStream(destination), overlapDetector);
+    }
+
+    public void manipulateFileWithOverlappingValidation(ByteBuffer source, OutputStream destination, OverlapDetector overlapDetector) throws IOException {
+        OverlapResult overlapResult;
+        try {
+            overlapResult = overlapDetector.detectResult(source);
+        } catch (Exception e) {
+            log.error(e.getMessage());
+            instrumentation.recordError(Phase.PAGE_PARSE, e);
+            writeBuffer(source, destination);
+            return;
+        }
+        manipulateFileWithOverlapResult(source, destination, overlapResult);
+    }
+
+    /**
+     * Marks the overlapping text of a stored result on the document and writes it to the destination, without parsing
+     * the page content. The destination stream is not closed.
+     */
+    public void manipulateFileWithOverlapResult(ByteBuffer source, OutputStream destination, OverlapResult overlapResult) throws IOException {
+        applyOverlapping(new PdfReader(new ByteBufferSource(source), new ReaderProperties()), createWriter(destination), overlapResult);
+    }
+
+    public void manipulateFileWithOverlapResult(InputStream source, OutputStream destination, OverlapResult overlapResult) throws IOException {
+        applyOverlapping(new PdfReader(source), createWriter(destination), overlapResult);
+    }
+
+    private void manipulateFile(PdfReader reader, OutputStream destination, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException {
+        try {
+            applyPdfOverlay(reader, createWriter(destination), overlayDetailMap);
+        } catch (BadPasswordException ex) {
+            throw new PDFValidatorPasswordException(ex);
+        }
+    }
+
+    private PdfWriter createWriter(OutputStream destination) {
+        PdfWriter writer = new PdfWriter(destination, createWriterProperties());
+        writer.setCloseStream(false);
+        return writer;
+    }
+
+    /**
+     * Full compression in low-memory mode, otherwise iText keeps the compression of the source.
+     */
+    private WriterProperties createWriterProperties() {
+        WriterProperties properties = new WriterProperties();
+        if (lowMemory) {
+            properties.setFullCompressionMode(true);
+        }
+        return properties;
+    }
+
+    private static void writeBuffer(ByteBuffer source, OutputStream destination) throws IOException {
+        ByteBuffer view = source.duplicate();
+        if (view.hasArray()) {
+            destination.write(view.array(), view.arrayOffset() + view.position(), view.remaining());
+            return;
+        }
+        byte[] chunk = new byte[8192];
+        while (view.hasRemaining()) {
+            int count = Math.min(chunk.length, view.remaining());
+            view.get(chunk, 0, count);
+            destination.write(chunk, 0, count);
+        }
+    }
+
+    private byte[] applyOverlapping(String sessionPath, String fileName, OverlapResult overlapResult) throws IOException {
         File directory = createNewOverlappingDirectory(sessionPath);
         Path sourcePath = Paths.get(sessionPath, "overlay", fileName);
         Path destinationPath = Paths.get(directory.getAbsolutePath(), fileName);
 
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(sourcePath.toString()), new PdfWriter(destinationPath.toString()))) {
-            Document document = new Document(pdfDoc);
-            for (Map.Entry<Integer, Set<Rectangle>> entry : recMap.entrySet()) {
-                PdfCanvas pdfCanvas = new PdfCanvas(pdfDoc.getPage(entry.getKey()));
-                for (Rectangle rectangle : entry.getValue()) {
-                    pdfCanvas.rectangle(rectangle);
-                    pdfCanvas.setFillColor(DeviceRgb.GREEN);
-                    pdfCanvas.setStrokeColor(DeviceRgb.GREEN);
-
-                    Paragraph paragraph = new Paragraph("!");
-                    paragraph.setFontColor(DeviceRgb.BLUE);
-                    paragraph.setFontSize(20);
-                    paragraph.setFixedPosition(entry.getKey(), rectangle.getX(), rectangle.getY(), 20);
-                    document.add(paragraph);
-                }
-                pdfCanvas.stroke();
-            }
-            document.close();
+        try {
+            applyOverlapping(PdfReaderFactory.open(sourcePath, readerMode), new PdfWriter(destinationPath.toString(), createWriterProperties()), overlapResult);
         } catch (IOException e) {
             log.error(e.getMessage());
+            instrumentation.recordError(Phase.WRITE, e);
         }
 
         return Files.readAllBytes(destinationPath);
     }
 
+    private void applyOverlapping(PdfReader reader, PdfWriter writer, OverlapResult overlapResult) throws IOException {
+        PdfDocument pdfDoc = openDocument(reader, writer);
+        try {
+            int pageCount = overlapResult.getPageCount();
+            //a stored result of another document would mark pages that do not exist
+            if (pageCount > 0 && overlapResult.getPageNumber(pageCount - 1) > pdfDoc.getNumberOfPages()) {
+                throw new IOException("Overlap result has pages the document does not have");
+            }
+            OverlapMarkerRenderer markerRenderer = new OverlapMarkerRenderer(pdfDoc, overlapMarkerMode);
+            for (int i = 0; i < pageCount; i++) {
+                PdfPage page = pdfDoc.getPage(overlapResult.getPageNumber(i));
+                markerRenderer.mark(page, overlapResult, i);
+                if (lowMemory) {
+                    page.flush();
+                }
+            }
+        } finally {
+            closeDocument(pdfDoc);
+        }
+    }
+
 
     private byte[] applyPdfOverlay(Path originalPath, Path destinationPath, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, BadPasswordException {
+        if (appendMode) {
+            try (FileChannel source = FileChannel.open(originalPath, StandardOpenOption.READ);
+                 FileChannel destination = FileChannel.open(destinationPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                long originalLength = source.size();
+                appendPdfOverlay(() -> PdfReaderFactory.open(originalPath.toAbsolutePath(), readerMode), Channels.newOutputStream(destination),
+                        originalLength, output -> transferFully(source, destination, originalLength), overlayDetailMap);
+            }
+        } else if (stampingExecutor != null) {
+            try (OutputStream destination = Files.newOutputStream(destinationPath)) {
+                stampInChunks(() -> PdfReaderFactory.open(originalPath.toAbsolutePath(), readerMode), destination, overlayDetailMap);
+            }
+        } else {
+            applyPdfOverlay(PdfReaderFactory.open(originalPath.toAbsolutePath(), readerMode), new PdfWriter(destinationPath.toAbsolutePath().toString(), createWriterProperties()), overlayDetailMap);
+        }
+        return Files.readAllBytes(destinationPath);
+    }
 
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(originalPath.toAbsolutePath().toString()), new PdfWriter(destinationPath.toAbsolutePath().toString()))) {
+    /**
+     * Writes the overlays as an incremental update after the unchanged original. Documents that iText had to repair
+     * and documents with bytes before the header cannot be updated incrementally and are rewritten completely.
+     */
+    private void appendPdfOverlay(ReaderSource readerSource, OutputStream destination, long originalLength, AppendOutputStream.OriginalWriter originalWriter,
+                                  Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, BadPasswordException {
+        PdfReader reader = readerSource.open();
+        //iText only copies the bytes from the header on, the offsets of the update would not match the original
+        if (reader.getFileLength() != originalLength) {
+            log.debug("Document has bytes before the header, rewriting it instead of appending");
+            applyPdfOverlay(reader, createWriter(destination), overlayDetailMap);
+            return;
+        }
+        PdfDocument pdfDoc;
+        long start = instrumentation.startTimer();
+        try {
+            pdfDoc = new PdfDocument(reader, createWriter(new AppendOutputStream(destination, originalLength, originalWriter)),
+                    new StampingProperties().useAppendMode());
+            instrumentation.stopTimer(Phase.OPEN, start);
+        } catch (BadPasswordException e) {
+            reader.close();
+            throw e;
+        } catch (PdfException e) {
+            log.debug(e.getMessage(), e);
+            reader.close();
+            applyPdfOverlay(readerSource.open(), createWriter(destination), overlayDetailMap);
+            return;
+        }
 
-            //first page overlay apply
-            applyFirstPageOverlay(overlayDetailMap.get(OverlayListType.FIRST_PAGE).getOverlays(), pdfDoc);
+        try {
+            applyOverlayPlan(overlayPlanCache.get(overlayDetailMap, pdfDoc.getNumberOfPages()), pdfDoc, 1);
+        } finally {
+            closeDocument(pdfDoc);
+        }
+    }
 
-            if (overlayDetailMap.containsKey(OverlayListType.PERFORATION_LINE) && overlayDetailMap.get(OverlayListType.PERFORATION_LINE).getAddCustomOverlay()) {
-                applyCustomOverlayList(overlayDetailMap.get(OverlayListType.PERFORATION_LINE).getOverlays(), overlayDetailMap.get(OverlayListType.PERFORATION_LINE).getPageInfo(), pdfDoc);
+    private static void transferFully(FileChannel source, FileChannel destination, long length) throws IOException {
+        long position = 0;
+        while (position < length) {
+            position += source.transferTo(position, length - position, destination);
+        }
+    }
+
+    private void applyPdfOverlay(PdfReader reader, PdfWriter writer, Map<OverlayListType, OverlayDetail> overlayDetailMap) throws IOException, BadPasswordException {
+
+        PdfDocument pdfDoc = openDocument(reader, writer);
+        try {
+            applyOverlayPlan(overlayPlanCache.get(overlayDetailMap, pdfDoc.getNumberOfPages()), pdfDoc, 1);
+        } finally {
+            closeDocument(pdfDoc);
+        }
+    }
+
+    /**
+     * Stamps chunks of pages concurrently into temporary files and merges them in page order. Small documents and
+     * documents whose catalog or links refer across pages are stamped sequentially.
+     */
+    private void stampInChunks(ReaderSource readerSource, OutputStream destination, Map<OverlayListType, OverlayDetail> overlayDetailMap)
+            throws IOException, BadPasswordException {
+        int pageCount;
+        PdfVersion pdfVersion;
+        boolean chunkable;
+        try (PdfDocument source = openDocument(readerSource.open(), null)) {
+            pageCount = source.getNumberOfPages();
+            pdfVersion = source.getPdfVersion();
+            chunkable = pageCount > pagesPerChunk && isChunkable(source);
+        }
+        if (!chunkable) {
+            applyPdfOverlay(readerSource.open(), createWriter(destination), overlayDetailMap);
+            return;
+        }
+
+        OverlayPlan plan = overlayPlanCache.get(overlayDetailMap, pageCount);
+        List<Path> chunkFiles = new ArrayList<>();
+        List<Future<Boolean>> chunks = new ArrayList<>();
+        try {
+            for (int from = 1; from <= pageCount; from += pagesPerChunk) {
+                int start = from;
+                int end = Math.min(from + pagesPerChunk - 1, pageCount);
+                Path chunkFile = Files.createTempFile("overlay-chunk", ".pdf");
+                chunkFiles.add(chunkFile);
+                chunks.add(stampingExecutor.submit(() -> stampChunk(readerSource, plan, start, end, chunkFile)));
             }
+            if (awaitChunks(chunks)) {
+                mergeChunks(readerSource, chunkFiles, pdfVersion, destination);
+            } else {
+                //the remaining chunks are of no use, they should not hold stamping threads and disk during the sequential stamp
+                discardChunks(chunks, chunkFiles);
+                applyPdfOverlay(readerSource.open(), createWriter(destination), overlayDetailMap);
+            }
+        } finally {
+            discardChunks(chunks, chunkFiles);
+        }
+    }
 
-            if (overlayDetailMap.containsKey(OverlayListType.PAYMENT) && overlayDetailMap.get(OverlayListType.PAYMENT).getAddCustomOverlay()) {
-                applyCustomOverlayList(overlayDetailMap.get(OverlayListType.PAYMENT).getOverlays(), overlayDetailMap.get(OverlayListType.PAYMENT).getPageInfo(), pdfDoc);
+    /**
+     * Cancels the chunks that are still stamping and deletes all chunk files.
+     */
+    private static void discardChunks(List<? extends Future<?>> chunks, List<Path> chunkFiles) {
+        for (Future<?> chunk : chunks) {
+            chunk.cancel(true);
+        }
+        chunks.clear();
+        for (Path chunkFile : chunkFiles) {
+            try {
+                Files.deleteIfExists(chunkFile);
+            } catch (IOException e) {
+                log.debug(e.getMessage(), e);
             }
-            //all pages after the first page overlay apply
-            applyAllPagesOverlay(overlayDetailMap.get(OverlayListType.ALL_PAGE).getOverlays(), pdfDoc);
         }
+        chunkFiles.clear();
+    }
 
+    private static boolean isChunkable(PdfDocument source) {
+        if (source.getReader().isEncrypted()) {
+            return false;
+        }
+        for (PdfName key : source.getCatalog().getPdfObject().keySet()) {
+            if (!CHUNKABLE_CATALOG_KEYS.contains(key)) {
+                return false;
+            }
+        }
+        return true;
+    }
 
-        return Files.readAllBytes(destinationPath);
+    /**
+     * Stamps the pages from..to into their own document, false when a page has link annotations that could point
+     * into another chunk.
+     */
+    private boolean stampChunk(ReaderSource readerSource, OverlayPlan plan, int from, int to, Path chunkFile) throws IOException {
+        try (PdfDocument source = new PdfDocument(readerSource.open())) {
+            for (int pageNumber = from; pageNumber <= to; pageNumber++) {
+                if (hasLinkAnnotations(source.getPage(pageNumber))) {
+                    return false;
+                }
+            }
+            //a chunk that is cancelled while stamping must not recreate its deleted file
+            OutputStream chunkOutput = Files.newOutputStream(chunkFile, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            try (PdfDocument chunk = new PdfDocument(new PdfWriter(chunkOutput))) {
+                source.copyPagesTo(from, to, chunk);
+                applyOverlayPlan(plan, chunk, from);
+            }
+        }
+        return true;
     }
 
+    private static boolean hasLinkAnnotations(PdfPage page) {
+        PdfArray annotations = page.getPdfObject().getAsArray(PdfName.Annots);
+        if (annotations == null) {
+            return false;
+        }
+        for (int i = 0; i < annotations.size(); i++) {
+            PdfDictionary annotation = annotations.getAsDictionary(i);
+            if (annotation != null && PdfName.Link.equals(annotation.getAsName(PdfName.Subtype))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean awaitChunks(List<Future<Boolean>> chunks) throws IOException {
+        try {
+            for (Future<Boolean> chunk : chunks) {
+                if (!chunk.get()) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Overlay stamping was interrupted");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Copies the stamped pages into the destination in chunk order, flushing every page once copied. Smart mode
+     * writes the fonts and overlays every chunk has its own copy of only once.
+     */
+    private void mergeChunks(ReaderSource readerSource, List<Path> chunkFiles, PdfVersion pdfVersion, OutputStream destination) throws IOException {
+        long start = instrumentation.startTimer();
+        try (PdfDocument source = new PdfDocument(readerSource.open())) {
+            WriterProperties properties = createWriterProperties().useSmartMode().setPdfVersion(pdfVersion);
+            PdfArray fileId = source.getTrailer().getAsArray(PdfName.ID);
+            if (fileId != null && fileId.getAsString(0) != null) {
+                properties.setInitialDocumentId(fileId.getAsString(0));
+            }
+            PdfWriter writer = new PdfWriter(destination, properties);
+            writer.setCloseStream(false);
+            try (PdfDocument merged = new PdfDocument(writer)) {
+                copyDocumentProperties(source, merged);
+                for (Path chunkFile : chunkFiles) {
+                    try (PdfDocument chunk = new PdfDocument(new PdfReader(chunkFile.toString()))) {
+                        for (PdfPage page : chunk.copyPagesTo(1, chunk.getNumberOfPages(), merged)) {
+                            page.flush();
+                        }
+                    }
+                }
+            }
+        }
+        instrumentation.stopTimer(Phase.WRITE, start);
+    }
+
+    /**
+     * Copies the document information and the catalog entries accepted for chunked stamping, the producer is set
+     * by iText when the merged document is closed.
+     */
+    private static void copyDocumentProperties(PdfDocument source, PdfDocument merged) {
+        PdfDictionary catalog = source.getCatalog().getPdfObject();
+        for (PdfName key : catalog.keySet()) {
+            if (!PdfName.Type.equals(key) && !PdfName.Pages.equals(key)) {
+                merged.getCatalog().put(key, catalog.get(key).copyTo(merged));
+            }
+        }
+        PdfDictionary info = source.getTrailer().getAsDictionary(PdfName.Info);
+        PdfDictionary mergedInfo = merged.getTrailer().getAsDictionary(PdfName.Info);
+        if (info != null && mergedInfo != null) {
+            for (PdfName key : info.keySet()) {
+                mergedInfo.put(key, info.get(key).copyTo(merged));
+            }
+        }
+    }
+
+    private PdfDocument openDocument(PdfReader reader, PdfWriter writer) {
+        long start = instrumentation.startTimer();
+        PdfDocument pdfDoc = writer == null ? new PdfDocument(reader) : new PdfDocument(reader, writer);
+        instrumentation.stopTimer(Phase.OPEN, start);
+        return pdfDoc;
+    }
+
+    private void closeDocument(PdfDocument pdfDoc) {
+        long start = instrumentation.startTimer();
+        pdfDoc.close();
+        instrumentation.stopTimer(Phase.WRITE, start);
+    }
 
     private static File createNewOverlappingDirectory(String sessionPath) {
         Path userOverlappingPath = Paths.get(sessionPath, "overlapping");
@@ -149,62 +600,252 @@ public class FileManipulator {
         return directory;
     }
 
-    private void applyFirstPageOverlay(List<String> firstPageOverlayList, PdfDocument pdfDoc) throws IOException {
-        Rectangle rectangle = pdfDoc.getFirstPage().getPageSizeWithRotation();
-        PdfCanvas canvas;
-        if (pdfDimensionChecker.checkWidth(rectangle.getWidth()) && pdfDimensionChecker.checkHeight(rectangle.getHeight())) {
-            canvas = new PdfCanvas(pdfDoc.getFirstPage().setIgnorePageRotationForContent(true));
-        } else {
-            canvas = new PdfCanvas(pdfDoc.getFirstPage());
+    /**
+     * Applies all overlays of a page through one canvas. The previous content is wrapped in q/Q and overlays that
+     * follow the page rotation are drawn with the same matrix {@link PdfCanvas} uses for pages that ignore their rotation.
+     * Page 1 of the document is page firstPageNumber of the plan. In low-memory mode each page is flushed once stamped,
+     * only the copied overlays stay in memory because the following pages share them.
+     */
+    private void applyOverlayPlan(OverlayPlan plan, PdfDocument pdfDoc, int firstPageNumber) throws IOException {
+        //every overlay is copied into the destination once and shared by all pages
+        PdfFormXObject[] copiedOverlays = new PdfFormXObject[plan.getOverlayCount()];
+        int pageCount = 0;
+        int overlaysApplied = 0;
+
+        for (int pageNumber = 1; pageNumber <= pdfDoc.getNumberOfPages(); pageNumber++) {
+            int[] operations = plan.getOperations(firstPageNumber + pageNumber - 1);
+            if (operations.length == 0) {
+                continue;
+            }
+            PdfPage page = pdfDoc.getPage(pageNumber);
+            PdfCanvas canvas = new PdfCanvas(page);
+            pageCount++;
+            float[] rotationMatrix = getRotationMatrix(page);
+            boolean rotated = false;
+
+            for (int operation : operations) {
+                boolean rotate = rotationMatrix != null && OverlayPlan.followsPageRotation(operation);
+                if (rotate != rotated) {
+                    if (rotate) {
+                        canvas.saveState();
+                        canvas.concatMatrix(rotationMatrix[0], rotationMatrix[1], rotationMatrix[2], rotationMatrix[3], rotationMatrix[4], rotationMatrix[5]);
+                    } else {
+                        canvas.restoreState();
+                    }
+                    rotated = rotate;
+                }
+
+                int overlayIndex = OverlayPlan.overlayIndex(operation);
+                PdfFormXObject overlay = copiedOverlays[overlayIndex];
+                if (overlay == null) {
+                    long start = instrumentation.startTimer();
+                    overlay = overlayTemplateCache.get(Paths.get(overlayPath, plan.getOverlay(overlayIndex))).copyFirstPageTo(pdfDoc);
+                    instrumentation.stopTimer(Phase.OVERLAY_COPY, start);
+                    copiedOverlays[overlayIndex] = overlay;
+                }
+                canvas.addXObject(overlay, 0, 0);
+                overlaysApplied++;
+            }
+            if (rotated) {
+                canvas.restoreState();
+            }
+            if (lowMemory) {
+                page.flush();
+            }
+        }
+        if (instrumentation.isEnabled()) {
+            instrumentation.increment(Counter.PAGES, pageCount);
+            instrumentation.increment(Counter.OVERLAYS_APPLIED, overlaysApplied);
         }
-        applyOverlayFiles(firstPageOverlayList, canvas, pdfDoc);
     }
 
-    private void applyAllPagesOverlay(List<String> secondPageOverlayList, PdfDocument pdfDoc) throws IOException {
-        for (int i = 1; i <= pdfDoc.getNumberOfPages(); i++) {
-            Rectangle rectangle = pdfDoc.getPage(i).getPageSizeWithRotation();
-            PdfCanvas canvas;
-            if (pdfDimensionChecker.checkWidth(rectangle.getWidth()) && pdfDimensionChecker.checkHeight(rectangle.getHeight())) {
-                canvas = new PdfCanvas(pdfDoc.getPage(i).setIgnorePageRotationForContent(true));
-            } else {
-                canvas = new PdfCanvas(pdfDoc.getPage(i));
-            }
-            applyOverlayFiles(secondPageOverlayList, canvas, pdfDoc);
+    /**
+     * Matrix undoing the page rotation, only for pages that match a format of the profile once rotated.
+     */
+    private float[] getRotationMatrix(PdfPage page) {
+        int rotation = page.getRotation();
+        if (rotation != 90 && rotation != 180 && rotation != 270) {
+            return null;
+        }
+        Rectangle rectangle = page.getPageSizeWithRotation();
+        if (!pageSizeProfile.matches(rectangle.getWidth(), rectangle.getHeight())) {
+            return null;
         }
+        if (rotation == 90) {
+            return new float[]{0, 1, -1, 0, rectangle.getTop(), 0};
+        } else if (rotation == 180) {
+            return new float[]{-1, 0, 0, -1, rectangle.getRight(), rectangle.getTop()};
+        }
+        return new float[]{0, -1, 1, 0, 0, rectangle.getRight()};
     }
 
-    private void applyCustomOverlayList(List<String> perforationOverlayList, PageSelectionDto perforationLineData, PdfDocument pdfDoc) throws IOException {
-        if (perforationLineData.getPageType().equals(PageType.SINGLE.getPageTypeName())) {
-            PdfCanvas canvas = new PdfCanvas(pdfDoc.getPage(perforationLineData.getSinglePage()).newContentStreamAfter(),
-                    pdfDoc.getPage(perforationLineData.getSinglePage()).getResources(), pdfDoc);
-            applyOverlayFiles(perforationOverlayList, canvas, pdfDoc);
+    private interface ReaderSource {
+        PdfReader open() throws IOException;
+    }
 
-        } else if (perforationLineData.getPageType().equals(PageType.RANGE.getPageTypeName())) {
-            for (int i = perforationLineData.getRangeFrom(); i <= perforationLineData.getRangeTo(); i++) {
-                PdfCanvas canvas = new PdfCanvas(pdfDoc.getPage(i).newContentStreamAfter(), pdfDoc.getPage(i).getResources(), pdfDoc);
-                applyOverlayFiles(perforationOverlayList, canvas, pdfDoc);
-            }
-        } else if (perforationLineData.getPageType().equals(PageType.CUSTOM.getPageTypeName())) {
-            String customPages = perforationLineData.getCustomPages();
-            List<String> strCustomPageList = new ArrayList<>(Arrays.asList(customPages.split(",")));
-            List<Integer> customPageList = strCustomPageList.stream()
-                    .map(Integer::valueOf)
-                    .collect(Collectors.toList());
-            for (Integer page : customPageList) {
-                PdfCanvas canvas = new PdfCanvas(pdfDoc.getPage(page).newContentStreamAfter(), pdfDoc.getPage(page).getResources(), pdfDoc);
-                applyOverlayFiles(perforationOverlayList, canvas, pdfDoc);
+    public static class Builder {
+        private PageSizeProfile pageSizeProfile;
+        private String overlayPath;
+        private OverlayTemplateCache overlayTemplateCache;
+        private ReaderMode readerMode = ReaderMode.DEFAULT;
+        private ExecutorService executor;
+        private OverlapDetector overlapDetector;
+        private OverlayPlanCache overlayPlanCache;
+        private boolean appendMode;
+        private boolean ownCache;
+        private int cacheMaxEntries;
+        private long cacheMaxBytes;
+        private Instrumentation instrumentation = Instrumentation.NOOP;
+        private ValidationResultCache resultCache;
+        private ExecutorService stampingExecutor;
+        private int pagesPerChunk;
+        private boolean lowMemory;
+        private OverlapMarkerMode overlapMarkerMode = OverlapMarkerMode.CONTENT;
+
+        private Builder() {
+        }
+
+        /**
+         * Directory the overlay file names are resolved against.
+         */
+        public Builder overlayPath(String overlayPath) {
+            this.overlayPath = overlayPath;
+            return this;
+        }
+
+        public Builder dimensionChecker(DimensionChecker dimensionChecker) {
+            this.pageSizeProfile = PageSizeProfile.of(dimensionChecker);
+            return this;
+        }
+
+        public Builder dimensions(float width, float height, float tolerance) {
+            return dimensionChecker(new DimensionChecker(width, height, tolerance));
+        }
+
+        /**
+         * Formats whose pages get first page and all pages overlays turned with the page rotation, replaces the
+         * single size of a dimension checker.
+         */
+        public Builder pageSizeProfile(PageSizeProfile pageSizeProfile) {
+            this.pageSizeProfile = pageSizeProfile;
+            return this;
+        }
+
+        /**
+         * Cache to share with other manipulators, the process wide default cache when not set.
+         */
+        public Builder overlayTemplateCache(OverlayTemplateCache overlayTemplateCache) {
+            this.overlayTemplateCache = overlayTemplateCache;
+            this.ownCache = false;
+            return this;
+        }
+
+        /**
+         * Gives this manipulator its own overlay cache with the given limits.
+         */
+        public Builder cacheSize(int maxEntries, long maxBytes) {
+            this.overlayTemplateCache = null;
+            this.ownCache = true;
+            this.cacheMaxEntries = maxEntries;
+            this.cacheMaxBytes = maxBytes;
+            return this;
+        }
+
+        public Builder readerMode(ReaderMode readerMode) {
+            this.readerMode = readerMode;
+            return this;
+        }
+
+        /**
+         * Executor the pages are split over during overlap detection, pages are processed on the calling thread when not set.
+         * Ignored when an overlap detector is configured.
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Cache of overlap rectangles for the default overlap detector, ignored when an overlap detector is configured.
+         */
+        public Builder resultCache(ValidationResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public Builder overlapDetector(OverlapDetector overlapDetector) {
+            this.overlapDetector = overlapDetector;
+            return this;
+        }
+
+        /**
+         * Cache of compiled overlay plans, every manipulator gets its own cache when not set.
+         */
+        public Builder overlayPlanCache(OverlayPlanCache overlayPlanCache) {
+            this.overlayPlanCache = overlayPlanCache;
+            return this;
+        }
+
+        /**
+         * Writes overlays as an incremental update: the original bytes are copied unchanged and only the new
+         * and modified objects are appended. Encrypted documents keep their encryption in this mode.
+         */
+        public Builder appendMode(boolean appendMode) {
+            this.appendMode = appendMode;
+            return this;
+        }
+
+        /**
+         * Receives timings and counters of this manipulator, its own caches and its default overlap detector.
+         * Caches and detectors passed in explicitly report to their own instrumentation.
+         */
+        public Builder instrumentation(Instrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            return this;
+        }
+
+        /**
+         * Stamps documents with more than pagesPerChunk pages in chunks on the executor and merges the chunks in page
+         * order. Every worker holds one chunk, stamped chunks wait in temporary files. Encrypted documents, documents
+         * with links, forms, outlines, named destinations or a structure tree are stamped sequentially.
+         * Cannot be combined with append mode.
+         */
+        public Builder parallelStamping(ExecutorService executor, int pagesPerChunk) {
+            if (pagesPerChunk < 1) {
+                throw new IllegalArgumentException("pagesPerChunk must be at least 1");
             }
+            this.stampingExecutor = executor;
+            this.pagesPerChunk = pagesPerChunk;
+            return this;
         }
-    }
 
-    private void applyOverlayFiles(List<String> overlayList, PdfCanvas canvas, PdfDocument pdfDoc) throws IOException {
-        for (String file : overlayList) {
-            Path path = Paths.get(overlayPath, file);
-            try (PdfDocument srcDoc = new PdfDocument(new PdfReader(path.toString()))) {
-                PdfFormXObject page = srcDoc.getFirstPage().copyAsFormXObject(pdfDoc);
-                canvas.addXObject(page, 0, 0);
+        /**
+         * Writes every page with its new content as soon as its overlays or overlap markers are applied and writes
+         * the output with object and cross-reference streams, so memory no longer grows with the page count.
+         * Append mode keeps the compression of the original because an update has to match it.
+         */
+        public Builder lowMemory(boolean lowMemory) {
+            this.lowMemory = lowMemory;
+            return this;
+        }
+
+        /**
+         * How overlapping text is marked by the overlapping validation, drawn into the page content by default.
+         */
+        public Builder overlapMarkerMode(OverlapMarkerMode overlapMarkerMode) {
+            this.overlapMarkerMode = overlapMarkerMode;
+            return this;
+        }
+
+        public FileManipulator build() {
+            if (appendMode && stampingExecutor != null) {
+                throw new IllegalStateException("Append mode and parallel stamping cannot be combined");
             }
+            if (pageSizeProfile == null || overlayPath == null || readerMode == null || instrumentation == null
+                    || overlapMarkerMode == null) {
+                throw new IllegalStateException("A dimension checker or page size profile, an overlay path, a reader mode, an instrumentation and an overlap marker mode are required");
+            }
+            return new FileManipulator(this);
         }
     }
-
 }
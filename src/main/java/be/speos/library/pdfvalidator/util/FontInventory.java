@@ -0,0 +1,162 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.FontInfo;
+import com.itextpdf.kernel.pdf.*;
+
+import java.util.*;
+
+/**
+ * Lists the fonts a document uses by following the resources of the pages, their annotation appearances, the
+ * default resources of the form, Form XObjects, tiling patterns and Type3 fonts. Image streams and other objects
+ * that are not reachable as resources are never parsed. A font counts as embedded when its font descriptor, or the
+ * one of its descendant font, has a FontFile, FontFile2 or FontFile3 entry. Type3 fonts carry their glyphs and are
+ * always embedded.
+ */
+public final class FontInventory {
+
+    private final Set<PdfDictionary> visitedResources = newIdentitySet();
+    private final Set<PdfDictionary> visitedFonts = newIdentitySet();
+    private final Deque<PdfDictionary> pendingResources = new ArrayDeque<>();
+    private final List<FontInfo> fonts = new ArrayList<>();
+
+    private FontInventory() {
+    }
+
+    public static List<FontInfo> collect(PdfDocument pdfDoc) {
+        FontInventory inventory = new FontInventory();
+        PdfDictionary acroForm = pdfDoc.getCatalog().getPdfObject().getAsDictionary(PdfName.AcroForm);
+        if (acroForm != null) {
+            inventory.addResources(acroForm.getAsDictionary(PdfName.DR));
+            inventory.drain();
+        }
+        for (int i = 1; i <= pdfDoc.getNumberOfPages(); i++) {
+            PdfDictionary page = pdfDoc.getPage(i).getPdfObject();
+            inventory.addResources(getInheritedResources(page));
+            inventory.addAnnotations(page.getAsArray(PdfName.Annots));
+            inventory.drain();
+        }
+        return inventory.fonts;
+    }
+
+    private static PdfDictionary getInheritedResources(PdfDictionary page) {
+        Set<PdfDictionary> visited = newIdentitySet();
+        PdfDictionary node = page;
+        while (node != null && visited.add(node)) {
+            PdfDictionary resources = node.getAsDictionary(PdfName.Resources);
+            if (resources != null) {
+                return resources;
+            }
+            node = node.getAsDictionary(PdfName.Parent);
+        }
+        return null;
+    }
+
+    private void addAnnotations(PdfArray annotations) {
+        if (annotations == null) {
+            return;
+        }
+        for (int i = 0; i < annotations.size(); i++) {
+            PdfDictionary annotation = annotations.getAsDictionary(i);
+            PdfDictionary appearance = annotation != null ? annotation.getAsDictionary(PdfName.AP) : null;
+            if (appearance == null) {
+                continue;
+            }
+            for (PdfName key : new PdfName[]{PdfName.N, PdfName.R, PdfName.D}) {
+                PdfObject entry = appearance.get(key);
+                if (entry instanceof PdfStream) {
+                    addResources(((PdfStream) entry).getAsDictionary(PdfName.Resources));
+                } else if (entry instanceof PdfDictionary) {
+                    //appearance states
+                    for (PdfObject state : ((PdfDictionary) entry).values()) {
+                        if (state instanceof PdfStream) {
+                            addResources(((PdfStream) state).getAsDictionary(PdfName.Resources));
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    private void addResources(PdfDictionary resources) {
+        if (resources != null && visitedResources.add(resources)) {
+            pendingResources.push(resources);
+        }
+    }
+
+    private void drain() {
+        while (!pendingResources.isEmpty()) {
+            PdfDictionary resources = pendingResources.pop();
+
+            PdfDictionary fontResources = resources.getAsDictionary(PdfName.Font);
+            if (fontResources != null) {
+                for (PdfObject font : fontResources.values()) {
+                    if (font instanceof PdfDictionary && visitedFonts.add((PdfDictionary) font)) {
+                        addFont((PdfDictionary) font);
+                    }
+                }
+            }
+
+            PdfDictionary xObjects = resources.getAsDictionary(PdfName.XObject);
+            if (xObjects != null) {
+                for (PdfObject xObject : xObjects.values()) {
+                    if (xObject instanceof PdfStream && PdfName.Form.equals(((PdfStream) xObject).getAsName(PdfName.Subtype))) {
+                        addResources(((PdfStream) xObject).getAsDictionary(PdfName.Resources));
+                    }
+                }
+            }
+
+            PdfDictionary patterns = resources.getAsDictionary(PdfName.Pattern);
+            if (patterns != null) {
+                for (PdfObject pattern : patterns.values()) {
+                    if (pattern instanceof PdfStream) {
+                        addResources(((PdfStream) pattern).getAsDictionary(PdfName.Resources));
+                    }
+                }
+            }
+        }
+    }
+
+    private void addFont(PdfDictionary font) {
+        PdfName subtype = font.getAsName(PdfName.Subtype);
+        PdfName baseFont = font.getAsName(PdfName.BaseFont);
+        String name = baseFont != null ? baseFont.getValue() : null;
+
+        boolean embedded;
+        if (PdfName.Type3.equals(subtype)) {
+            embedded = true;
+            addResources(font.getAsDictionary(PdfName.Resources));
+        } else if (PdfName.Type0.equals(subtype)) {
+            PdfArray descendantFonts = font.getAsArray(PdfName.DescendantFonts);
+            PdfDictionary descendantFont = descendantFonts != null && !descendantFonts.isEmpty() ? descendantFonts.getAsDictionary(0) : null;
+            embedded = descendantFont != null && hasFontFile(descendantFont);
+        } else {
+            embedded = hasFontFile(font);
+        }
+
+        PdfIndirectReference reference = font.getIndirectReference();
+        fonts.add(new FontInfo(name, subtype != null ? subtype.getValue() : null, reference != null ? reference.getObjNumber() + " " + reference.getGenNumber() + " R" : null,
+                embedded, isSubset(name)));
+    }
+
+    private static boolean hasFontFile(PdfDictionary font) {
+        PdfDictionary descriptor = font.getAsDictionary(PdfName.FontDescriptor);
+        return descriptor != null
+                && (descriptor.containsKey(PdfName.FontFile) || descriptor.containsKey(PdfName.FontFile2) || descriptor.containsKey(PdfName.FontFile3));
+    }
+
+    private static boolean isSubset(String name) {
+        if (name == null || name.length() < 8 || name.charAt(6) != '+') {
+            return false;
+        }
+        for (int i = 0; i < 6; i++) {
+            if (name.charAt(i) < 'A' || name.charAt(i) > 'Z') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Set<PdfDictionary> newIdentitySet() {
+        return Collections.newSetFromMap(new IdentityHashMap<PdfDictionary, Boolean>());
+    }
+}
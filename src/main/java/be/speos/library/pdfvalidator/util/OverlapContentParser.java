@@ -0,0 +1,136 @@
+package be.speos.library.pdfvalidator.util;
+
+import com.itextpdf.kernel.PdfException;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.*;
+import com.itextpdf.kernel.pdf.canvas.parser.IContentOperator;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfCanvasProcessor;
+
+import java.util.*;
+
+/**
+ * Parses page content for the {@link OverlappingTextSearchingStrategy} with only the work the strategy needs.
+ * A red stroke color can only be set with RG, SC or SCN, so pages whose content and Form XObjects contain none
+ * of these operators cannot have guide lines and are not parsed at all. Paths are only built while the stroke
+ * color is red, the clipping path is not tracked and every content stream is decoded once.
+ */
+final class OverlapContentParser {
+
+    private static final String[] PATH_CONSTRUCTION_OPERATORS = {"m", "l", "c", "v", "y", "h", "re"};
+
+    private OverlapContentParser() {
+    }
+
+    static Set<Rectangle> findOverlappingText(PdfPage page) {
+        byte[] content = page.getContentBytes();
+        PdfResources resources = page.getResources();
+        if (!containsStrokeColorOperator(content)
+                && !formsContainStrokeColorOperator(resources.getResource(PdfName.XObject), Collections.newSetFromMap(new IdentityHashMap<>()))) {
+            return new HashSet<>();
+        }
+
+        OverlappingTextSearchingStrategy strategy = new OverlappingTextSearchingStrategy();
+        PdfCanvasProcessor processor = new PdfCanvasProcessor(strategy);
+        for (String operator : PATH_CONSTRUCTION_OPERATORS) {
+            IContentOperator original = processor.registerContentOperator(operator, null);
+            processor.registerContentOperator(operator, new RedStrokeOperator(original));
+        }
+        //processContent instead of processPageContent, the strategy does not use the clipping path
+        processor.processContent(content, resources);
+        return strategy.foundOverlappingText();
+    }
+
+    private static boolean formsContainStrokeColorOperator(PdfDictionary xObjects, Set<PdfObject> visited) {
+        if (xObjects == null) {
+            return false;
+        }
+        for (PdfObject xObject : xObjects.values()) {
+            if (!(xObject instanceof PdfStream) || !visited.add(xObject)) {
+                continue;
+            }
+            PdfStream stream = (PdfStream) xObject;
+            if (!PdfName.Form.equals(stream.getAsName(PdfName.Subtype))) {
+                continue;
+            }
+            byte[] content;
+            try {
+                content = stream.getBytes();
+            } catch (PdfException e) {
+                //let the parser report the broken stream
+                return true;
+            }
+            if (containsStrokeColorOperator(content)) {
+                return true;
+            }
+            PdfDictionary resources = stream.getAsDictionary(PdfName.Resources);
+            if (resources != null && formsContainStrokeColorOperator(resources.getAsDictionary(PdfName.XObject), visited)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * True when RG, SC or SCN appears as a token. Matches inside strings or inline images only cost a parse.
+     */
+    static boolean containsStrokeColorOperator(byte[] content) {
+        for (int i = 0; i + 1 < content.length; i++) {
+            int end;
+            if (content[i] == 'R' && content[i + 1] == 'G') {
+                end = i + 2;
+            } else if (content[i] == 'S' && content[i + 1] == 'C') {
+                end = i + 2 < content.length && content[i + 2] == 'N' ? i + 3 : i + 2;
+            } else {
+                continue;
+            }
+            if ((i == 0 || isDelimiter(content[i - 1])) && (end == content.length || isDelimiter(content[end]))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isDelimiter(byte value) {
+        switch (value) {
+            case 0:
+            case '\t':
+            case '\n':
+            case '\f':
+            case '\r':
+            case ' ':
+            case '(':
+            case ')':
+            case '<':
+            case '>':
+            case '[':
+            case ']':
+            case '{':
+            case '}':
+            case '/':
+            case '%':
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Drops path construction while the stroke color is not red. Color operators are not allowed inside a path
+     * object, so the color when the path is painted is the color it was built with.
+     */
+    private static final class RedStrokeOperator implements IContentOperator {
+
+        private final IContentOperator delegate;
+
+        private RedStrokeOperator(IContentOperator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void invoke(PdfCanvasProcessor processor, PdfLiteral operator, List<PdfObject> operands) {
+            if (OverlappingTextSearchingStrategy.isRed(processor.getGraphicsState().getStrokeColor())) {
+                delegate.invoke(processor, operator, operands);
+            }
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.cache.ValidationResultCache;
+import be.speos.library.pdfvalidator.dto.OverlapResult;
+import be.speos.library.pdfvalidator.enums.ReaderMode;
+import be.speos.library.pdfvalidator.metrics.Counter;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+import be.speos.library.pdfvalidator.metrics.Phase;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.ReaderProperties;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Searches every page of a document for text and images crossing red guide lines.
+ * Without an executor the pages are processed sequentially. With an executor the page range is split into
+ * chunks that are parsed concurrently, every chunk with its own reader over the same bytes, and the chunk
+ * results are merged in page order so the outcome is identical to the sequential mode.
+ * With a result cache documents with already seen content are not parsed again.
+ */
+public class OverlapDetector {
+
+    public static final int DEFAULT_PAGES_PER_TASK = 16;
+
+    //the rectangles only depend on the content, the detection has no configuration
+    private static final String CACHE_CONFIGURATION = "";
+
+    private final ExecutorService executor;
+    private final int pagesPerTask;
+    private final ReaderMode readerMode;
+    private final Instrumentation instrumentation;
+    private final ValidationResultCache resultCache;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private OverlapDetector(Builder builder) {
+        this.executor = builder.executor;
+        this.pagesPerTask = builder.pagesPerTask;
+        this.readerMode = builder.readerMode;
+        this.instrumentation = builder.instrumentation;
+        this.resultCache = builder.resultCache;
+    }
+
+    /**
+     * Detector splitting the pages over the common fork-join pool.
+     */
+    public static OverlapDetector parallel() {
+        return builder().executor(ForkJoinPool.commonPool()).build();
+    }
+
+    public boolean isParallel() {
+        return executor != null;
+    }
+
+    public Map<Integer, Set<Rectangle>> detect(Path filePath) throws IOException {
+        return detectResult(filePath).toMap();
+    }
+
+    public Map<Integer, Set<Rectangle>> detect(byte[] content) throws IOException {
+        return detectResult(content).toMap();
+    }
+
+    public Map<Integer, Set<Rectangle>> detect(ByteBuffer content) throws IOException {
+        return detectResult(content).toMap();
+    }
+
+    /**
+     * Sequential detection on a document that is already open.
+     */
+    public static Map<Integer, Set<Rectangle>> detect(PdfDocument document) {
+        return detect(document, Instrumentation.NOOP);
+    }
+
+    public static Map<Integer, Set<Rectangle>> detect(PdfDocument document, Instrumentation instrumentation) {
+        return detectResult(document, instrumentation).toMap();
+    }
+
+    /**
+     * Rectangles in the compact form that {@link OverlapResultSerializer} can store next to the document.
+     */
+    public OverlapResult detectResult(Path filePath) throws IOException {
+        ReaderSource source = () -> PdfReaderFactory.open(filePath, readerMode);
+        if (resultCache == null) {
+            return detectResult(source);
+        }
+        FileTime lastModified = Files.getLastModifiedTime(filePath);
+        String contentHash = ValidationResultCache.hash(filePath);
+        OverlapResult cached = resultCache.getOverlapResult(contentHash, CACHE_CONFIGURATION);
+        if (cached != null) {
+            return cached;
+        }
+        OverlapResult result = detectResult(source);
+        //a file replaced during the detection would store the rectangles under the old hash
+        if (lastModified.equals(Files.getLastModifiedTime(filePath))) {
+            resultCache.putOverlapResult(contentHash, CACHE_CONFIGURATION, result);
+        }
+        return result;
+    }
+
+    public OverlapResult detectResult(byte[] content) throws IOException {
+        ReaderSource source = () -> new PdfReader(new RandomAccessSourceFactory().createSource(content), new ReaderProperties());
+        return resultCache == null ? detectResult(source) : detectCached(ValidationResultCache.hash(content), source);
+    }
+
+    public OverlapResult detectResult(ByteBuffer content) throws IOException {
+        ReaderSource source = () -> new PdfReader(new ByteBufferSource(content), new ReaderProperties());
+        return resultCache == null ? detectResult(source) : detectCached(ValidationResultCache.hash(content), source);
+    }
+
+    public static OverlapResult detectResult(PdfDocument document) {
+        return detectResult(document, Instrumentation.NOOP);
+    }
+
+    public static OverlapResult detectResult(PdfDocument document, Instrumentation instrumentation) {
+        return detectResult(document, 1, document.getNumberOfPages(), instrumentation);
+    }
+
+    private OverlapResult detectCached(String contentHash, ReaderSource source) throws IOException {
+        OverlapResult result = resultCache.getOverlapResult(contentHash, CACHE_CONFIGURATION);
+        if (result == null) {
+            result = detectResult(source);
+            resultCache.putOverlapResult(contentHash, CACHE_CONFIGURATION, result);
+        }
+        return result;
+    }
+
+    private OverlapResult detectResult(ReaderSource source) throws IOException {
+        int pageCount;
+        long openStart = instrumentation.startTimer();
+        try (PdfDocument document = new PdfDocument(source.open())) {
+            instrumentation.stopTimer(Phase.OPEN, openStart);
+            if (executor == null || document.getNumberOfPages() <= pagesPerTask) {
+                return detectResult(document, instrumentation);
+            }
+            pageCount = document.getNumberOfPages();
+        }
+
+        List<Future<OverlapResult>> chunks = new ArrayList<>();
+        for (int from = 1; from <= pageCount; from += pagesPerTask) {
+            int start = from;
+            int end = Math.min(from + pagesPerTask - 1, pageCount);
+            chunks.add(executor.submit(() -> {
+                try (PdfDocument document = new PdfDocument(source.open())) {
+                    return detectResult(document, start, end, instrumentation);
+                }
+            }));
+        }
+
+        OverlapResult.Builder result = OverlapResult.builder();
+        try {
+            for (Future<OverlapResult> chunk : chunks) {
+                result.addAll(chunk.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            cancel(chunks);
+            throw new InterruptedIOException("Overlap detection was interrupted");
+        } catch (ExecutionException e) {
+            cancel(chunks);
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+        return result.build();
+    }
+
+    private static OverlapResult detectResult(PdfDocument document, int from, int to, Instrumentation instrumentation) {
+        OverlapResult.Builder builder = OverlapResult.builder();
+        for (int i = from; i <= to; i++) {
+            long parseStart = instrumentation.startTimer();
+            Set<Rectangle> overlappingRectangles = OverlapContentParser.findOverlappingText(document.getPage(i));
+            instrumentation.stopTimer(Phase.PAGE_PARSE, parseStart);
+            builder.addPage(i, overlappingRectangles);
+        }
+        OverlapResult result = builder.build();
+        if (instrumentation.isEnabled()) {
+            instrumentation.increment(Counter.PAGES, to - from + 1L);
+            instrumentation.increment(Counter.OVERLAP_RECTANGLES, result.getRectangleCount());
+        }
+        return result;
+    }
+
+    private static void cancel(List<? extends Future<?>> chunks) {
+        for (Future<?> chunk : chunks) {
+            chunk.cancel(true);
+        }
+    }
+
+    private interface ReaderSource {
+        PdfReader open() throws IOException;
+    }
+
+    public static class Builder {
+        private ExecutorService executor;
+        private int pagesPerTask = DEFAULT_PAGES_PER_TASK;
+        private ReaderMode readerMode = ReaderMode.DEFAULT;
+        private Instrumentation instrumentation = Instrumentation.NOOP;
+        private ValidationResultCache resultCache;
+
+        private Builder() {
+        }
+
+        /**
+         * Executor the page chunks are parsed on, pages are processed on the calling thread when not set.
+         */
+        public Builder executor(ExecutorService executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        /**
+         * Pages parsed by one task when an executor is set, {@link #DEFAULT_PAGES_PER_TASK} when not set.
+         */
+        public Builder pagesPerTask(int pagesPerTask) {
+            if (pagesPerTask < 1) {
+                throw new IllegalArgumentException("pagesPerTask must be at least 1");
+            }
+            this.pagesPerTask = pagesPerTask;
+            return this;
+        }
+
+        public Builder readerMode(ReaderMode readerMode) {
+            this.readerMode = readerMode;
+            return this;
+        }
+
+        public Builder instrumentation(Instrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            return this;
+        }
+
+        /**
+         * Rectangles of documents with the same content are reused, no caching when not set.
+         */
+        public Builder resultCache(ValidationResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public OverlapDetector build() {
+            if (readerMode == null || instrumentation == null) {
+                throw new IllegalStateException("A reader mode and an instrumentation are required");
+            }
+            return new OverlapDetector(this);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.OverlapResult;
+import be.speos.library.pdfvalidator.enums.OverlapMarkerMode;
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfPage;
+import com.itextpdf.kernel.pdf.annot.PdfAnnotation;
+import com.itextpdf.kernel.pdf.annot.PdfSquareAnnotation;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+import com.itextpdf.kernel.pdf.xobject.PdfFormXObject;
+
+import java.io.IOException;
+
+/**
+ * Marks overlapping text on the pages of one document. In content mode the blue "!" is a single Form XObject shared
+ * by every marker of the document, and all markers of a page go into one content stream: the "!" markers first, then
+ * the green rectangles as one stroked path, the painting order the layout based markers had.
+ */
+final class OverlapMarkerRenderer {
+
+    private static final float MARKER_FONT_SIZE = 20;
+    //baseline of the "!" above the rectangle corner, where a fixed position paragraph used to put it
+    private static final float MARKER_BASELINE = 8.85f;
+    private static final String ANNOTATION_CONTENTS = "Overlapping text";
+
+    private final PdfDocument pdfDoc;
+    private final OverlapMarkerMode mode;
+    private PdfFormXObject marker;
+
+    OverlapMarkerRenderer(PdfDocument pdfDoc, OverlapMarkerMode mode) {
+        this.pdfDoc = pdfDoc;
+        this.mode = mode;
+    }
+
+    /**
+     * Marks the rectangles of the page at the index of the result, straight from its columns.
+     */
+    void mark(PdfPage page, OverlapResult result, int pageIndex) throws IOException {
+        int first = result.getFirstRectangle(pageIndex);
+        int end = first + result.getRectangleCount(pageIndex);
+        if (first == end) {
+            return;
+        }
+        if (mode == OverlapMarkerMode.ANNOTATIONS) {
+            for (int i = first; i < end; i++) {
+                page.addAnnotation(createAnnotation(result.getRectangle(i)));
+            }
+            return;
+        }
+
+        PdfFormXObject markerXObject = getMarker();
+        PdfCanvas canvas = new PdfCanvas(page);
+        for (int i = first; i < end; i++) {
+            canvas.addXObject(markerXObject, result.getX(i), result.getY(i));
+        }
+        canvas.setStrokeColor(DeviceRgb.GREEN);
+        for (int i = first; i < end; i++) {
+            canvas.rectangle(result.getX(i), result.getY(i), result.getWidth(i), result.getHeight(i));
+        }
+        canvas.stroke();
+    }
+
+    private PdfFormXObject getMarker() throws IOException {
+        if (marker == null) {
+            marker = new PdfFormXObject(new Rectangle(0, 0, MARKER_FONT_SIZE, MARKER_BASELINE + MARKER_FONT_SIZE));
+            new PdfCanvas(marker, pdfDoc)
+                    .beginText()
+                    .setFontAndSize(PdfFontFactory.createFont(StandardFonts.HELVETICA), MARKER_FONT_SIZE)
+                    .moveText(0, MARKER_BASELINE)
+                    .setFillColor(DeviceRgb.BLUE)
+                    .showText("!")
+                    .endText();
+        }
+        return marker;
+    }
+
+    /**
+     * Square annotation whose 1pt border covers the same area as the stroked rectangle of content mode.
+     */
+    private PdfSquareAnnotation createAnnotation(Rectangle rectangle) {
+        Rectangle area = new Rectangle(rectangle.getX() - 0.5f, rectangle.getY() - 0.5f, rectangle.getWidth() + 1, rectangle.getHeight() + 1);
+        PdfFormXObject appearance = new PdfFormXObject(new Rectangle(0, 0, area.getWidth(), area.getHeight()));
+        new PdfCanvas(appearance, pdfDoc)
+                .setStrokeColor(DeviceRgb.GREEN)
+                .rectangle(0.5, 0.5, rectangle.getWidth(), rectangle.getHeight())
+                .stroke();
+
+        PdfSquareAnnotation annotation = new PdfSquareAnnotation(area);
+        annotation.setColor(DeviceRgb.GREEN);
+        annotation.setContents(ANNOTATION_CONTENTS);
+        annotation.setFlags(PdfAnnotation.PRINT);
+        annotation.setNormalAppearance(appearance.getPdfObject());
+        return annotation;
+    }
+}
@@ -0,0 +1,112 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.OverlapResult;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Binary format of an {@link OverlapResult}, so a result can be stored next to its document and loaded again without
+ * parsing the document. After a magic number, the format version, the page count and the rectangle count follow the
+ * page numbers, the rectangle count of every page and the packed rectangle coordinates, all big-endian.
+ */
+public final class OverlapResultSerializer {
+
+    //bump when the layout changes, older versions are rejected instead of misread
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x50564f52;
+    private static final int HEADER_LENGTH = 16;
+
+    private OverlapResultSerializer() {
+    }
+
+    /**
+     * Writes the result to the stream, the stream is not closed.
+     */
+    public static void write(OverlapResult result, OutputStream out) throws IOException {
+        int pageCount = result.getPageCount();
+        int rectangleCount = result.getRectangleCount();
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_LENGTH + pageCount * 8 + rectangleCount * 16);
+        buffer.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(pageCount).putInt(rectangleCount);
+        for (int i = 0; i < pageCount; i++) {
+            buffer.putInt(result.getPageNumber(i));
+        }
+        for (int i = 0; i < pageCount; i++) {
+            buffer.putInt(result.getRectangleCount(i));
+        }
+        for (int i = 0; i < rectangleCount; i++) {
+            buffer.putFloat(result.getX(i)).putFloat(result.getY(i)).putFloat(result.getWidth(i)).putFloat(result.getHeight(i));
+        }
+        out.write(buffer.array());
+    }
+
+    /**
+     * Reads one result from the stream, the stream is not closed.
+     */
+    public static OverlapResult read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        byte[] header = new byte[HEADER_LENGTH];
+        data.readFully(header);
+        ByteBuffer headerBuffer = ByteBuffer.wrap(header);
+        if (headerBuffer.getInt() != MAGIC) {
+            throw new IOException("Not an overlap result");
+        }
+        int version = headerBuffer.getInt();
+        if (version != FORMAT_VERSION) {
+            throw new IOException("Unsupported overlap result format version " + version);
+        }
+        int pageCount = headerBuffer.getInt();
+        int rectangleCount = headerBuffer.getInt();
+        if (pageCount < 0 || rectangleCount < 0 || (long) pageCount * 8 + (long) rectangleCount * 16 > Integer.MAX_VALUE - HEADER_LENGTH) {
+            throw new IOException("Invalid overlap result size");
+        }
+
+        byte[] body = new byte[pageCount * 8 + rectangleCount * 16];
+        data.readFully(body);
+        ByteBuffer buffer = ByteBuffer.wrap(body);
+        int[] pageNumbers = new int[pageCount];
+        buffer.asIntBuffer().get(pageNumbers);
+        buffer.position(pageCount * 4);
+        int[] rectangleOffsets = new int[pageCount + 1];
+        for (int i = 0; i < pageCount; i++) {
+            int count = buffer.getInt();
+            if (count < 0 || count > rectangleCount - rectangleOffsets[i]) {
+                throw new IOException("Invalid rectangle count for page " + pageNumbers[i]);
+            }
+            rectangleOffsets[i + 1] = rectangleOffsets[i] + count;
+        }
+        float[] coordinates = new float[rectangleCount * 4];
+        buffer.asFloatBuffer().get(coordinates);
+        try {
+            return OverlapResult.of(pageNumbers, rectangleOffsets, coordinates);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid overlap result: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Writes the result to a temporary file next to the target and moves it in place, readers never see a partial file.
+     */
+    public static void write(OverlapResult result, Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                write(result, out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    public static OverlapResult read(Path file) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            return read(in);
+        }
+    }
+}
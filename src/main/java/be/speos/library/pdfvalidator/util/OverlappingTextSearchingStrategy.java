@@ -1,6 +1,6 @@
 package be.speos.library.pdfvalidator.util;
 
-import com.itextpdf.kernel.colors.DeviceRgb;
+import com.itextpdf.kernel.colors.Color;
 import com.itextpdf.kernel.geom.Vector;
 import com.itextpdf.kernel.geom.*;
 import com.itextpdf.kernel.pdf.canvas.parser.EventType;
@@ -12,113 +12,169 @@ import com.itextpdf.kernel.pdf.canvas.parser.listener.IEventListener;
 
 import java.util.*;
 
+/**
+ * Collects text, image and red guide line boxes of a page and reports the guide line boxes that are crossed.
+ * Boxes are kept in packed float buffers and only the crossed guide lines are turned into {@link Rectangle}s.
+ */
 public class OverlappingTextSearchingStrategy implements IEventListener {
-    private static final List<Vector> UNIT_SQUARE_CORNERS = Arrays.asList(new Vector(0, 0, 1), new Vector(1, 0, 1), new Vector(1, 1, 1), new Vector(0, 1, 1));
+    private static final float[] UNIT_SQUARE_X = {0, 1, 1, 0};
+    private static final float[] UNIT_SQUARE_Y = {0, 0, 1, 1};
+    private static final Set<EventType> SUPPORTED_EVENTS =
+            Collections.unmodifiableSet(EnumSet.of(EventType.RENDER_TEXT, EventType.RENDER_IMAGE, EventType.RENDER_PATH));
 
-    private Set<Rectangle> imageRectangles = new HashSet<>();
-    private Set<Rectangle> textRectangles = new HashSet<>();
-    private Set<Rectangle> pathRectangles = new HashSet<>();
+    private final RectangleBuffer imageRectangles = new RectangleBuffer();
+    private final RectangleBuffer textRectangles = new RectangleBuffer();
+    private final RectangleBuffer pathRectangles = new RectangleBuffer();
 
     private Set<Rectangle> interceptedRecs = new HashSet<>();
 
     @Override
     public void eventOccurred(IEventData data, EventType type) {
         if (data instanceof ImageRenderInfo) {
-            ImageRenderInfo imageData = (ImageRenderInfo) data;
-            Matrix ctm = imageData.getImageCtm();
-            List<Rectangle> cornerRectangles = new ArrayList<>(UNIT_SQUARE_CORNERS.size());
-            for (Vector unitCorner : UNIT_SQUARE_CORNERS) {
-                Vector corner = unitCorner.cross(ctm);
-                cornerRectangles.add(new Rectangle(corner.get(Vector.I1), corner.get(Vector.I2), 0, 0));
-            }
-            Rectangle boundingBox = Rectangle.getCommonRectangle(cornerRectangles.toArray(new Rectangle[cornerRectangles.size()]));
-            imageRectangles.add(boundingBox);
+            addImageBox(((ImageRenderInfo) data).getImageCtm());
         } else if (data instanceof TextRenderInfo) {
             TextRenderInfo textData = (TextRenderInfo) data;
-            Rectangle ascentRectangle = textData.getAscentLine().getBoundingRectangle();
-            Rectangle descentRectangle = textData.getDescentLine().getBoundingRectangle();
-            Rectangle boundingBox = Rectangle.getCommonRectangle(ascentRectangle, descentRectangle);
-            if ((boundingBox.getHeight() != 0) && (boundingBox.getWidth() != 0)) {
-                textRectangles.add(boundingBox.applyMargins(0.1f, 0.1f, 0.1f, 0.1f, false));
-            }
+            addTextBox(textData.getAscentLine(), textData.getDescentLine());
         } else if (data instanceof PathRenderInfo) {
             PathRenderInfo pathData = (PathRenderInfo) data;
-            pathData.preserveGraphicsState();
-            Path path = pathData.getPath();
-            for (Subpath sPath : path.getSubpaths()) {
-                List<Line> rectLines = new ArrayList<>();
-                for (IShape segment : sPath.getSegments()) {
-                    if (segment instanceof Line) {
-                        Line line = (Line) segment;
-                        Rectangle rectangle = new Rectangle((float) line.getBasePoints().get(0).x - 2.5f, (float) line.getBasePoints().get(0).y - 2.5f, (float) (line.getBasePoints().get(1).x - line.getBasePoints().get(0).x), 5);
-
-                        if (pathData.getStrokeColor().getColorValue().length == 3) {
-                            DeviceRgb deviceRgb = new DeviceRgb(pathData.getStrokeColor().getColorValue()[0], pathData.getStrokeColor().getColorValue()[1], pathData.getStrokeColor().getColorValue()[2]);
-                            if (deviceRgb.equals(DeviceRgb.RED)) {
-                                pathRectangles.add(rectangle.applyMargins(0.1f, 0.1f, 0.1f, 0.1f, false));
-                                rectLines.add(line);
-                            }
-                        }
-                    }
-                }
-                if(rectLines.size() == 3){
-                    Line firstLine = rectLines.get(0);
-                    Line lastLine = rectLines.get(2);
-
-                    Line line = new Line((float)firstLine.getBasePoints().get(0).x,
-                            (float)firstLine.getBasePoints().get(0).y, (float)lastLine.getBasePoints().get(1).x, (float)lastLine.getBasePoints().get(1).y);
-
-                    Rectangle rectangle = new Rectangle(
-                            (float) line.getBasePoints().get(0).x - 2.5f,
-                            (float) line.getBasePoints().get(0).y - 2.5f,
-                            5, (float) (line.getBasePoints().get(1).y - line.getBasePoints().get(0).y));
-                    pathRectangles.add(rectangle.applyMargins(0.5f, 0.5f, 0.5f, 0.5f, false));
-                }
+            if (isRed(pathData.getStrokeColor())) {
+                addPathBoxes(pathData.getPath());
             }
         }
     }
 
     @Override
     public Set<EventType> getSupportedEvents() {
-        return null;
+        return SUPPORTED_EVENTS;
     }
 
 
     public Set<Rectangle> foundOverlappingText() {
-        List<Rectangle> textRectangleList = new ArrayList<>(textRectangles);
+        RectangleGridIndex pathIndex = new RectangleGridIndex(pathRectangles);
+        boolean[] hits = new boolean[pathRectangles.size()];
 
-        while (!textRectangleList.isEmpty()) {
-            Rectangle testRectangle = textRectangleList.remove(textRectangleList.size() - 1);
-            for (Rectangle rectangle : pathRectangles) {
-                if (intersect(testRectangle, rectangle)) {
-                    interceptedRecs.add(rectangle);
-                }
+        for (int i = 0; i < textRectangles.size(); i++) {
+            pathIndex.collectIntersecting(textRectangles, i, hits);
+        }
+
+        for (int i = 0; i < imageRectangles.size(); i++) {
+            pathIndex.collectIntersecting(imageRectangles, i, hits);
+        }
+
+        for (int i = 0; i < hits.length; i++) {
+            if (hits[i]) {
+                interceptedRecs.add(pathRectangles.toRectangle(i));
             }
         }
+        return interceptedRecs;
+    }
 
-        List<Rectangle> imageRectangleList = new ArrayList<>(imageRectangles);
+    // Bounding box of the unit square transformed by the image matrix, computed like
+    // Vector.cross(Matrix) followed by Rectangle.getCommonRectangle.
+    private void addImageBox(Matrix ctm) {
+        float llx = Float.MAX_VALUE;
+        float lly = Float.MAX_VALUE;
+        float urx = -Float.MAX_VALUE;
+        float ury = -Float.MAX_VALUE;
+        for (int corner = 0; corner < UNIT_SQUARE_X.length; corner++) {
+            float x = UNIT_SQUARE_X[corner] * ctm.get(Matrix.I11) + UNIT_SQUARE_Y[corner] * ctm.get(Matrix.I21) + ctm.get(Matrix.I31);
+            float y = UNIT_SQUARE_X[corner] * ctm.get(Matrix.I12) + UNIT_SQUARE_Y[corner] * ctm.get(Matrix.I22) + ctm.get(Matrix.I32);
+            if (y < lly) {
+                lly = y;
+            }
+            if (x < llx) {
+                llx = x;
+            }
+            if (y > ury) {
+                ury = y;
+            }
+            if (x > urx) {
+                urx = x;
+            }
+        }
+        imageRectangles.add(llx, lly, urx - llx, ury - lly);
+    }
 
-        while(!imageRectangleList.isEmpty()){
-            Rectangle testRectangle = imageRectangleList.remove(imageRectangleList.size() - 1);
-            for (Rectangle rectangle : pathRectangles) {
-                if (intersect(testRectangle, rectangle)) {
-                    interceptedRecs.add(rectangle);
-                }
+    // Common box of the ascent and descent lines, computed like LineSegment.getBoundingRectangle
+    // followed by Rectangle.getCommonRectangle, shrunk by a 0.1 margin.
+    private void addTextBox(LineSegment ascentLine, LineSegment descentLine) {
+        float llx = Float.MAX_VALUE;
+        float lly = Float.MAX_VALUE;
+        float urx = -Float.MAX_VALUE;
+        float ury = -Float.MAX_VALUE;
+        for (int i = 0; i < 2; i++) {
+            LineSegment segment = i == 0 ? ascentLine : descentLine;
+            float x1 = segment.getStartPoint().get(Vector.I1);
+            float y1 = segment.getStartPoint().get(Vector.I2);
+            float x2 = segment.getEndPoint().get(Vector.I1);
+            float y2 = segment.getEndPoint().get(Vector.I2);
+            float x = Math.min(x1, x2);
+            float y = Math.min(y1, y2);
+            float top = y + Math.abs(y2 - y1);
+            float right = x + Math.abs(x2 - x1);
+            if (y < lly) {
+                lly = y;
+            }
+            if (x < llx) {
+                llx = x;
+            }
+            if (top > ury) {
+                ury = top;
+            }
+            if (right > urx) {
+                urx = right;
             }
         }
+        float width = urx - llx;
+        float height = ury - lly;
+        if ((height != 0) && (width != 0)) {
+            addWithMargin(textRectangles, llx, lly, width, height, 0.1f);
+        }
+    }
 
-        return interceptedRecs;
+    private void addPathBoxes(Path path) {
+        for (Subpath sPath : path.getSubpaths()) {
+            int lineCount = 0;
+            double firstX = 0;
+            double firstY = 0;
+            double thirdY = 0;
+            for (IShape segment : sPath.getSegments()) {
+                if (segment instanceof Line) {
+                    List<Point> basePoints = segment.getBasePoints();
+                    Point start = basePoints.get(0);
+                    Point end = basePoints.get(1);
+                    addWithMargin(pathRectangles, (float) start.x - 2.5f, (float) start.y - 2.5f, (float) (end.x - start.x), 5, 0.1f);
+
+                    lineCount++;
+                    if (lineCount == 1) {
+                        firstX = start.x;
+                        firstY = start.y;
+                    } else if (lineCount == 3) {
+                        thirdY = end.y;
+                    }
+                }
+            }
+            if (lineCount == 3) {
+                //vertical guide line drawn as three connected segments
+                double startX = (float) firstX;
+                double startY = (float) firstY;
+                double endY = (float) thirdY;
+                addWithMargin(pathRectangles, (float) startX - 2.5f, (float) startY - 2.5f, 5, (float) (endY - startY), 0.5f);
+            }
+        }
     }
 
-    private boolean intersect(Rectangle a, Rectangle b) {
-        return intersect(a.getLeft(), a.getRight(), b.getLeft(), b.getRight()) &&
-                intersect(a.getBottom(), a.getTop(), b.getBottom(), b.getTop());
+    // Same arithmetic as Rectangle.applyMargins(margin, margin, margin, margin, false).
+    private static void addWithMargin(RectangleBuffer buffer, float x, float y, float width, float height, float margin) {
+        buffer.add(x + margin, y + margin, width - (margin + margin), height - (margin + margin));
     }
 
-    private boolean intersect(float start1, float end1, float start2, float end2) {
-        if (start1 < start2)
-            return start2 <= end1;
-        else
-            return start1 <= end2;
+    // Same outcome as new DeviceRgb(r, g, b).equals(DeviceRgb.RED), which clamps intensities to [0, 1].
+    static boolean isRed(Color color) {
+        if (color == null) {
+            return false;
+        }
+        float[] value = color.getColorValue();
+        return value.length == 3 && value[0] >= 1 && !(value[1] > 0) && !(value[2] > 0);
     }
 }
@@ -0,0 +1,167 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.dto.PageSelectionDto;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import be.speos.library.pdfvalidator.enums.PageType;
+
+import java.util.*;
+
+/**
+ * Overlay configuration resolved into the overlays of every page of a document with a given page count.
+ * Operations of a page keep the order of the original passes: first page, perforation line, payment, all pages.
+ * First page and all pages overlays follow the page rotation of pages that have the expected size, custom overlays
+ * do so on the first page only, where the first page overlay already rotated the canvas.
+ * Plans are immutable and can be shared by all documents with the same configuration and page count.
+ */
+public final class OverlayPlan {
+
+    private static final int FOLLOWS_PAGE_ROTATION = 1;
+    private static final int[] NO_OPERATIONS = new int[0];
+
+    private final int pageCount;
+    private final String[] overlays;
+    private final int[][] pageOperations;
+
+    private OverlayPlan(int pageCount, String[] overlays, int[][] pageOperations) {
+        this.pageCount = pageCount;
+        this.overlays = overlays;
+        this.pageOperations = pageOperations;
+    }
+
+    /**
+     * @throws IllegalArgumentException when a page type is unknown or a selected page is outside the document
+     */
+    public static OverlayPlan compile(Map<OverlayListType, OverlayDetail> overlayDetailMap, int pageCount) {
+        Compiler compiler = new Compiler(pageCount);
+        OverlayDetail firstPage = overlayDetailMap.get(OverlayListType.FIRST_PAGE);
+        if (firstPage != null && pageCount > 0) {
+            compiler.addAll(firstPage.getOverlays(), 1, true);
+        }
+        compiler.addCustom(overlayDetailMap.get(OverlayListType.PERFORATION_LINE));
+        compiler.addCustom(overlayDetailMap.get(OverlayListType.PAYMENT));
+        OverlayDetail allPages = overlayDetailMap.get(OverlayListType.ALL_PAGE);
+        if (allPages != null) {
+            for (int page = 1; page <= pageCount; page++) {
+                compiler.addAll(allPages.getOverlays(), page, true);
+            }
+        }
+        return compiler.toPlan();
+    }
+
+    public int getPageCount() {
+        return pageCount;
+    }
+
+    int getOverlayCount() {
+        return overlays.length;
+    }
+
+    String getOverlay(int overlayIndex) {
+        return overlays[overlayIndex];
+    }
+
+    /**
+     * Operations of a page, decoded with {@link #overlayIndex(int)} and {@link #followsPageRotation(int)}.
+     */
+    int[] getOperations(int pageNumber) {
+        return pageOperations[pageNumber - 1];
+    }
+
+    static int overlayIndex(int operation) {
+        return operation >>> 1;
+    }
+
+    static boolean followsPageRotation(int operation) {
+        return (operation & FOLLOWS_PAGE_ROTATION) != 0;
+    }
+
+    private static final class Compiler {
+        private final int pageCount;
+        private final Map<String, Integer> overlayIndexes = new LinkedHashMap<>();
+        private final int[] operationCounts;
+        private int[] pages = new int[16];
+        private int[] operations = new int[16];
+        private int size;
+
+        private Compiler(int pageCount) {
+            this.pageCount = pageCount;
+            this.operationCounts = new int[pageCount];
+        }
+
+        private void addCustom(OverlayDetail overlayDetail) {
+            if (overlayDetail == null || !overlayDetail.getAddCustomOverlay()) {
+                return;
+            }
+            List<String> overlayList = overlayDetail.getOverlays();
+            PageSelectionDto pageInfo = overlayDetail.getPageInfo();
+            switch (PageType.fromPageTypeName(pageInfo.getPageType())) {
+                case SINGLE:
+                    addCustomPage(overlayList, checkPage(pageInfo.getSinglePage()));
+                    break;
+                case RANGE:
+                    int rangeFrom = checkPage(pageInfo.getRangeFrom());
+                    int rangeTo = checkPage(pageInfo.getRangeTo());
+                    if (rangeFrom > rangeTo) {
+                        throw new IllegalArgumentException("Page range " + rangeFrom + "-" + rangeTo + " is empty");
+                    }
+                    for (int page = rangeFrom; page <= rangeTo; page++) {
+                        addCustomPage(overlayList, page);
+                    }
+                    break;
+                case CUSTOM:
+                    for (String page : pageInfo.getCustomPages().split(",")) {
+                        addCustomPage(overlayList, checkPage(Integer.valueOf(page.trim())));
+                    }
+                    break;
+                case ALL:
+                    for (int page = 1; page <= pageCount; page++) {
+                        addCustomPage(overlayList, page);
+                    }
+                    break;
+            }
+        }
+
+        private void addCustomPage(List<String> overlayList, int page) {
+            addAll(overlayList, page, page == 1);
+        }
+
+        private int checkPage(Integer page) {
+            if (page == null || page < 1 || page > pageCount) {
+                throw new IllegalArgumentException("Page " + page + " is outside the document with " + pageCount + " pages");
+            }
+            return page;
+        }
+
+        private void addAll(List<String> overlayList, int page, boolean followsPageRotation) {
+            for (String overlay : overlayList) {
+                Integer overlayIndex = overlayIndexes.get(overlay);
+                if (overlayIndex == null) {
+                    overlayIndex = overlayIndexes.size();
+                    overlayIndexes.put(overlay, overlayIndex);
+                }
+                if (size == pages.length) {
+                    pages = Arrays.copyOf(pages, size * 2);
+                    operations = Arrays.copyOf(operations, size * 2);
+                }
+                pages[size] = page;
+                operations[size] = overlayIndex << 1 | (followsPageRotation ? FOLLOWS_PAGE_ROTATION : 0);
+                size++;
+                operationCounts[page - 1]++;
+            }
+        }
+
+        private OverlayPlan toPlan() {
+            int[][] pageOperations = new int[pageCount][];
+            int[] filled = new int[pageCount];
+            for (int i = 0; i < pageCount; i++) {
+                pageOperations[i] = operationCounts[i] == 0 ? NO_OPERATIONS : new int[operationCounts[i]];
+            }
+            for (int i = 0; i < size; i++) {
+                int pageIndex = pages[i] - 1;
+                pageOperations[pageIndex][filled[pageIndex]++] = operations[i];
+            }
+            return new OverlayPlan(pageCount, overlayIndexes.keySet().toArray(new String[0]), pageOperations);
+        }
+    }
+}
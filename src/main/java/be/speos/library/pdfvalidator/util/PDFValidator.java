@@ -1,15 +1,22 @@
 package be.speos.library.pdfvalidator.util;
 
+import be.speos.library.pdfvalidator.cache.ValidationResultCache;
+import be.speos.library.pdfvalidator.dto.FontInfo;
+import be.speos.library.pdfvalidator.dto.PageFormatReport;
+import be.speos.library.pdfvalidator.dto.PageGeometry;
+import be.speos.library.pdfvalidator.dto.PageSizeReport;
+import be.speos.library.pdfvalidator.dto.PreflightReport;
+import be.speos.library.pdfvalidator.enums.PageScanMode;
+import be.speos.library.pdfvalidator.enums.ReaderMode;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+import be.speos.library.pdfvalidator.metrics.Phase;
 import com.itextpdf.kernel.crypto.BadPasswordException;
-import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.kernel.pdf.*;
-import com.itextpdf.kernel.pdf.canvas.parser.PdfDocumentContentParser;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -19,30 +26,54 @@ import java.util.Set;
 public class PDFValidator {
 
     private static final Logger log = LoggerFactory.getLogger(PDFValidator.class);
-    private static final double ALLOWED_PAGE_WEIGHT = 0.3;
+    static final double ALLOWED_PAGE_WEIGHT = 0.3;
+
+    private static volatile Instrumentation instrumentation = Instrumentation.NOOP;
+    private static volatile ValidationResultCache resultCache;
 
     private PDFValidator(){}
 
+    /**
+     * Instrumentation used by all static validations, no-op by default.
+     */
+    public static void setInstrumentation(Instrumentation instrumentation) {
+        PDFValidator.instrumentation = instrumentation;
+    }
+
+    /**
+     * Cache of overlap rectangles used by {@link #validateOverlapping(String, String)}, no caching when null.
+     */
+    public static void setResultCache(ValidationResultCache resultCache) {
+        PDFValidator.resultCache = resultCache;
+    }
+
     public static boolean validatePassword(String path, String filename) throws BadPasswordException, IOException {
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(path + "/" + filename))) {
-            return true;
+        Path filePath = Paths.get(path, filename);
+        long start = instrumentation.startTimer();
+        boolean passwordRequired = PreflightInspector.isEncrypted(filePath) && PreflightInspector.inspect(filePath).isPasswordRequired();
+        instrumentation.stopTimer(Phase.VALIDATE_PASSWORD, start);
+        if (passwordRequired) {
+            throw new BadPasswordException("Document is password protected");
         }
+        return true;
     }
 
     public static boolean validateSameSize(String path, String filename, DimensionChecker dimensionChecker) {
+        return validateSameSize(path, filename, PageSizeProfile.of(dimensionChecker));
+    }
+
+    /**
+     * True when a page matches none of the formats of the profile.
+     */
+    public static boolean validateSameSize(String path, String filename, PageSizeProfile pageSizeProfile) {
         boolean differentSizeFound = false;
-        List<String> errorPageList = new ArrayList<>();
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(path + "/" + filename))) {
-
-            for (int i = 1; i <= pdfDoc.getNumberOfPages(); i++) {
-                Rectangle rectangle = pdfDoc.getPage(i).getPageSizeWithRotation();
-                if (!dimensionChecker.checkWidth(rectangle.getWidth()) || !dimensionChecker.checkHeight(rectangle.getHeight())) {
-                    differentSizeFound = true;
-                    errorPageList.add(String.valueOf(i));
-                }
-            }
+        try (PdfDocument pdfDoc = openDocument(Paths.get(path, filename))) {
+            long start = instrumentation.startTimer();
+            differentSizeFound = !new PageGeometryScanner(pageSizeProfile).scan(pdfDoc, PageScanMode.FAIL_FAST).isValid();
+            instrumentation.stopTimer(Phase.VALIDATE_SAME_SIZE, start);
         } catch (IOException e) {
             log.debug(e.getMessage(), e);
+            instrumentation.recordError(Phase.VALIDATE_SAME_SIZE, e);
         }
         return differentSizeFound;
     }
@@ -50,20 +81,13 @@ public class PDFValidator {
     public static boolean validateEmbeddedFonts(String path, String filename) {
         boolean isEmbedded = true;
         List<String> unembeddedFontList = new ArrayList<>();
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(path + "/" + filename))) {
-            for (int i = 1; i < pdfDoc.getNumberOfPdfObjects(); i++) {
-                PdfObject obj = pdfDoc.getPdfObject(i);
-                if (obj != null && obj.isDictionary()) {
-                    PdfDictionary pdfDictionary = (PdfDictionary) obj;
-                    if (PdfName.Font.equals(pdfDictionary.getAsName(PdfName.Type))) {
-                        for (PdfName pdfName : pdfDictionary.keySet()) {
-                            checkFont(pdfName, pdfDictionary, unembeddedFontList);
-                        }
-                    }
-                }
-            }
+        try (PdfDocument pdfDoc = openDocument(Paths.get(path, filename))) {
+            long start = instrumentation.startTimer();
+            unembeddedFontList = findUnembeddedFonts(pdfDoc);
+            instrumentation.stopTimer(Phase.VALIDATE_EMBEDDED_FONTS, start);
         } catch (IOException e) {
             log.debug(e.getMessage(), e);
+            instrumentation.recordError(Phase.VALIDATE_EMBEDDED_FONTS, e);
         }
 
         if (!unembeddedFontList.isEmpty()) {
@@ -74,59 +98,119 @@ public class PDFValidator {
 
 
     public static boolean validatePageWeight(String path, String filename) {
-        Path filePath = Paths.get(path, filename);
-
         boolean isValidPageWeight = true;
-        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(filePath.toString()))) {
-            int pageCount = pdfDoc.getNumberOfPages();
-            double fileSize = Files.size(filePath) / 1024.0 / 1024.0; //Size in megabytes
-            double averageWeight = fileSize / pageCount;
-            if (averageWeight > ALLOWED_PAGE_WEIGHT) {
+        try {
+            long start = instrumentation.startTimer();
+            PreflightReport preflightReport = PreflightInspector.inspect(Paths.get(path, filename));
+            instrumentation.stopTimer(Phase.VALIDATE_PAGE_WEIGHT, start);
+            if (preflightReport.isPasswordRequired()) {
+                throw new BadPasswordException("Document is password protected");
+            }
+            if (preflightReport.getAveragePageWeight() > ALLOWED_PAGE_WEIGHT) {
                 return false;
             }
 
         } catch (IOException e) {
             log.debug(e.getMessage(), e);
+            instrumentation.recordError(Phase.VALIDATE_PAGE_WEIGHT, e);
         }
         return isValidPageWeight;
     }
 
+    /**
+     * Searches the manipulated copy {@code path/overlay/filename} for overlaps, true when overlapping text is found.
+     * {@link ValidationEngine} checks the given file itself and passes when there are none.
+     */
     public static boolean validateOverlapping(String path, String filename) throws FileNotFoundException, IllegalStateException {
+        return validateOverlapping(path, filename, OverlapDetector.builder().instrumentation(instrumentation).resultCache(resultCache).build());
+    }
+
+    public static boolean validateOverlapping(String path, String filename, OverlapDetector overlapDetector) throws FileNotFoundException, IllegalStateException {
         int overlappingCount = 0;
 
         Path filePath = Paths.get(path, "overlay", filename);
         if (!filePath.toFile().exists()) {
             throw new FileNotFoundException("Could not create the file with manipulations");
         }
-        try (PdfReader reader = new PdfReader(filePath.toString())) {
-            PdfDocument document = new PdfDocument(reader);
-            PdfDocumentContentParser contentParser = new PdfDocumentContentParser(document);
-            for (int i = 1; i <= document.getNumberOfPages(); i++) {
-                OverlappingTextSearchingStrategy strategy = contentParser.processContent(i, new OverlappingTextSearchingStrategy());
-                Set<Rectangle> overlappingRectangle = strategy.foundOverlappingText();
-                if (!overlappingRectangle.isEmpty()) {
-                    overlappingCount = overlappingCount + overlappingRectangle.size();
-                }
-            }
-            document.close();
-
+        long start = instrumentation.startTimer();
+        try {
+            overlappingCount = overlapDetector.detectResult(filePath).getRectangleCount();
+            instrumentation.stopTimer(Phase.VALIDATE_OVERLAPPING, start);
         } catch (IOException e) {
             log.debug(e.getMessage(), e);
+            instrumentation.recordError(Phase.VALIDATE_OVERLAPPING, e);
         }
         return overlappingCount > 0;
     }
 
+    /**
+     * Size, page count and encryption, to reject uploads before other checks run. The page count is read through the
+     * cross-reference table where possible, encrypted documents and documents with cross-reference streams are opened once.
+     */
+    public static PreflightReport getPreflightReport(String path, String filename) throws IOException {
+        long start = instrumentation.startTimer();
+        PreflightReport preflightReport = PreflightInspector.inspect(Paths.get(path, filename));
+        instrumentation.stopTimer(Phase.PREFLIGHT, start);
+        return preflightReport;
+    }
+
+    public static PageSizeReport getPageSizeReport(String path, String filename, DimensionChecker dimensionChecker) throws IOException {
+        try (PdfDocument pdfDoc = new PdfDocument(PdfReaderFactory.open(Paths.get(path, filename), ReaderMode.DEFAULT))) {
+            return new PageGeometryScanner(dimensionChecker).scan(pdfDoc, PageScanMode.FULL_REPORT);
+        }
+    }
+
+    /**
+     * Format of every page, one scan for all formats of the profile.
+     */
+    public static PageFormatReport getPageFormatReport(String path, String filename, PageSizeProfile pageSizeProfile) throws IOException {
+        try (PdfDocument pdfDoc = new PdfDocument(PdfReaderFactory.open(Paths.get(path, filename), ReaderMode.DEFAULT))) {
+            long start = instrumentation.startTimer();
+            PageFormatReport pageFormatReport = new PageGeometryScanner(pageSizeProfile).classify(pdfDoc);
+            instrumentation.stopTimer(Phase.VALIDATE_SAME_SIZE, start);
+            return pageFormatReport;
+        }
+    }
+
+    public static List<FontInfo> getFontReport(String path, String filename) throws IOException {
+        try (PdfDocument pdfDoc = new PdfDocument(PdfReaderFactory.open(Paths.get(path, filename), ReaderMode.DEFAULT))) {
+            return FontInventory.collect(pdfDoc);
+        }
+    }
+
+    private static PdfDocument openDocument(Path filePath) throws IOException {
+        long start = instrumentation.startTimer();
+        PdfDocument pdfDoc = new PdfDocument(PdfReaderFactory.open(filePath, ReaderMode.DEFAULT));
+        instrumentation.stopTimer(Phase.OPEN, start);
+        return pdfDoc;
+    }
 
-    private static void checkFont(PdfName pdfName, PdfDictionary pdfDictionary, List<String> unembeddedFontList) {
-        if (pdfName.equals(PdfName.BaseFont)) {
-            String name = pdfDictionary.get(pdfName).toString();
-            if (!isEmbeddedSubset(name)) {
-                unembeddedFontList.add(name);
+    static List<String> findDifferentSizePages(PdfDocument pdfDoc, PageSizeProfile pageSizeProfile) {
+        List<String> errorPageList = new ArrayList<>();
+        for (PageGeometry geometry : new PageGeometryScanner(pageSizeProfile).scan(pdfDoc, PageScanMode.FULL_REPORT).getFailingPages()) {
+            errorPageList.add(String.valueOf(geometry.getPageNumber()));
+        }
+        return errorPageList;
+    }
+
+    static List<String> findUnembeddedFonts(PdfDocument pdfDoc) {
+        List<String> unembeddedFontList = new ArrayList<>();
+        for (FontInfo font : FontInventory.collect(pdfDoc)) {
+            if (!font.isEmbedded()) {
+                unembeddedFontList.add(getDisplayName(font));
             }
         }
+        return unembeddedFontList;
     }
 
-    private static boolean isEmbeddedSubset(String name) {
-        return name != null && name.length() > 8 && name.charAt(7) == '+';
+    /**
+     * BaseFont of the font, fonts without one are reported by subtype and object, e.g. {@code <unnamed TrueType 12 0 R>}.
+     */
+    private static String getDisplayName(FontInfo font) {
+        if (font.getName() != null) {
+            return font.getName();
+        }
+        String subtype = font.getSubtype() != null ? font.getSubtype() : "font";
+        return font.getReference() != null ? "<unnamed " + subtype + " " + font.getReference() + ">" : "<unnamed " + subtype + ">";
     }
 }
@@ -0,0 +1,174 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.PageFormat;
+import be.speos.library.pdfvalidator.dto.PageFormatReport;
+import be.speos.library.pdfvalidator.dto.PageGeometry;
+import be.speos.library.pdfvalidator.dto.PageSizeReport;
+import be.speos.library.pdfvalidator.enums.PageScanMode;
+import com.itextpdf.kernel.pdf.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+
+/**
+ * Checks page sizes by walking the page tree dictionaries directly. Only MediaBox and Rotate are read, inherited
+ * values included, so no {@link PdfPage}s are created and no page content or resources are loaded.
+ * The size of a page is computed like {@link PdfPage#getPageSizeWithRotation()} and looked up in a {@link PageSizeProfile}.
+ */
+public class PageGeometryScanner {
+
+    private static final Logger log = LoggerFactory.getLogger(PageGeometryScanner.class);
+
+    private final PageSizeProfile pageSizeProfile;
+
+    public PageGeometryScanner(DimensionChecker dimensionChecker) {
+        this(PageSizeProfile.of(dimensionChecker));
+    }
+
+    public PageGeometryScanner(PageSizeProfile pageSizeProfile) {
+        this.pageSizeProfile = pageSizeProfile;
+    }
+
+    /**
+     * Reports the pages that match no format of the profile.
+     */
+    public PageSizeReport scan(PdfDocument pdfDoc, PageScanMode scanMode) {
+        List<PageGeometry> failingPages = new ArrayList<>();
+        Walk walk = walk(pdfDoc, geometry -> {
+            if (!pageSizeProfile.matches(geometry.getWidth(), geometry.getHeight())) {
+                failingPages.add(geometry);
+                return scanMode != PageScanMode.FAIL_FAST;
+            }
+            return true;
+        });
+        return new PageSizeReport(walk.pageCount, walk.complete, failingPages);
+    }
+
+    /**
+     * Format of every page in one pass over the page tree.
+     */
+    public PageFormatReport classify(PdfDocument pdfDoc) {
+        List<PageFormat> pageFormats = new ArrayList<>();
+        BitSet landscape = new BitSet();
+        walk(pdfDoc, geometry -> {
+            int match = pageSizeProfile.classify(geometry.getWidth(), geometry.getHeight());
+            if (match < 0) {
+                pageFormats.add(null);
+            } else {
+                landscape.set(pageFormats.size(), PageSizeProfile.isLandscape(match));
+                pageFormats.add(pageSizeProfile.getFormat(PageSizeProfile.formatIndex(match)));
+            }
+            return true;
+        });
+        boolean[] pageLandscape = new boolean[pageFormats.size()];
+        for (int i = 0; i < pageLandscape.length; i++) {
+            pageLandscape[i] = landscape.get(i);
+        }
+        return new PageFormatReport(pageFormats.toArray(new PageFormat[0]), pageLandscape);
+    }
+
+    private static Walk walk(PdfDocument pdfDoc, PageVisitor visitor) {
+        Set<PdfDictionary> visited = Collections.newSetFromMap(new IdentityHashMap<PdfDictionary, Boolean>());
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(new Node(pdfDoc.getCatalog().getPdfObject().getAsDictionary(PdfName.Pages), null, null));
+
+        int pageNumber = 0;
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            if (node.dictionary == null || !visited.add(node.dictionary)) {
+                if (node.dictionary != null) {
+                    log.debug("Page tree node visited twice, skipping it");
+                }
+                continue;
+            }
+
+            PdfArray mediaBox = node.dictionary.getAsArray(PdfName.MediaBox);
+            if (mediaBox == null) {
+                mediaBox = node.mediaBox;
+            }
+            PdfNumber rotate = node.dictionary.getAsNumber(PdfName.Rotate);
+            if (rotate == null) {
+                rotate = node.rotate;
+            }
+
+            PdfArray kids = node.dictionary.getAsArray(PdfName.Kids);
+            if (isPageTreeNode(node.dictionary, kids)) {
+                for (int i = kids.size() - 1; i >= 0; i--) {
+                    stack.push(new Node(kids.getAsDictionary(i), mediaBox, rotate));
+                }
+                continue;
+            }
+
+            pageNumber++;
+            if (!visitor.visit(toGeometry(pageNumber, mediaBox, rotate))) {
+                return new Walk(pageNumber, stack.isEmpty());
+            }
+        }
+        return new Walk(pageNumber, true);
+    }
+
+    private static boolean isPageTreeNode(PdfDictionary dictionary, PdfArray kids) {
+        PdfName type = dictionary.getAsName(PdfName.Type);
+        return kids != null && (type == null || PdfName.Pages.equals(type));
+    }
+
+    /**
+     * A page without a usable media box is reported with a zero size, so it always fails the size check.
+     */
+    private static PageGeometry toGeometry(int pageNumber, PdfArray mediaBox, PdfNumber rotate) {
+        float width = 0;
+        float height = 0;
+        if (mediaBox != null && mediaBox.size() == 4) {
+            PdfNumber llx = mediaBox.getAsNumber(0);
+            PdfNumber lly = mediaBox.getAsNumber(1);
+            PdfNumber urx = mediaBox.getAsNumber(2);
+            PdfNumber ury = mediaBox.getAsNumber(3);
+            if (llx != null && lly != null && urx != null && ury != null) {
+                width = Math.abs(urx.floatValue() - llx.floatValue());
+                height = Math.abs(ury.floatValue() - lly.floatValue());
+            }
+        }
+
+        int rotation = rotate != null ? rotate.intValue() % 360 : 0;
+        if (rotation < 0) {
+            rotation += 360;
+        }
+        //every started quarter turn swaps width and height
+        for (int remaining = rotation; remaining > 0; remaining -= 90) {
+            float swap = width;
+            width = height;
+            height = swap;
+        }
+        return new PageGeometry(pageNumber, width, height, rotation);
+    }
+
+    private interface PageVisitor {
+        /**
+         * False stops the walk.
+         */
+        boolean visit(PageGeometry geometry);
+    }
+
+    private static class Walk {
+        private final int pageCount;
+        private final boolean complete;
+
+        private Walk(int pageCount, boolean complete) {
+            this.pageCount = pageCount;
+            this.complete = complete;
+        }
+    }
+
+    private static class Node {
+        private final PdfDictionary dictionary;
+        private final PdfArray mediaBox;
+        private final PdfNumber rotate;
+
+        private Node(PdfDictionary dictionary, PdfArray mediaBox, PdfNumber rotate) {
+            this.dictionary = dictionary;
+            this.mediaBox = mediaBox;
+            this.rotate = rotate;
+        }
+    }
+}
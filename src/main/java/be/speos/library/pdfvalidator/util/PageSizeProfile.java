@@ -0,0 +1,198 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.PageFormat;
+import be.speos.library.pdfvalidator.enums.PageOrientation;
+
+import java.util.*;
+
+/**
+ * Registry of named page formats that classifies a page size in one lookup. Every allowed orientation of a format
+ * becomes a candidate and the candidates are sorted into width buckets when the profile is built, so a classification
+ * only compares the few candidates of one bucket and allocates nothing. When formats overlap the one registered
+ * first wins. Profiles are immutable and can be shared.
+ */
+public final class PageSizeProfile {
+
+    private static final int NO_MATCH = -1;
+    private static final int LANDSCAPE = 1;
+    private static final int[] NO_CANDIDATES = new int[0];
+
+    private final List<PageFormat> formats;
+    private final float bucketWidth;
+    private final int[][] buckets;
+    //bounds and match of every candidate, by candidate index
+    private final float[] minWidths;
+    private final float[] maxWidths;
+    private final float[] minHeights;
+    private final float[] maxHeights;
+    private final int[] matches;
+
+    private PageSizeProfile(List<PageFormat> formats) {
+        this.formats = Collections.unmodifiableList(new ArrayList<>(formats));
+        int candidateCount = 0;
+        float maxTolerance = 0;
+        for (PageFormat format : formats) {
+            candidateCount += format.getOrientation() == PageOrientation.ANY && format.getWidth() != format.getHeight() ? 2 : 1;
+            maxTolerance = Math.max(maxTolerance, format.getTolerance());
+        }
+        minWidths = new float[candidateCount];
+        maxWidths = new float[candidateCount];
+        minHeights = new float[candidateCount];
+        maxHeights = new float[candidateCount];
+        matches = new int[candidateCount];
+
+        int candidate = 0;
+        float maxWidth = 0;
+        for (int i = 0; i < formats.size(); i++) {
+            PageFormat format = formats.get(i);
+            float shortSide = Math.min(format.getWidth(), format.getHeight());
+            float longSide = Math.max(format.getWidth(), format.getHeight());
+            PageOrientation orientation = format.getOrientation();
+            if (orientation != PageOrientation.LANDSCAPE) {
+                setCandidate(candidate++, format, shortSide, longSide, match(i, false));
+            }
+            if (orientation == PageOrientation.LANDSCAPE || (orientation == PageOrientation.ANY && shortSide != longSide)) {
+                setCandidate(candidate++, format, longSide, shortSide, match(i, true));
+            }
+            maxWidth = Math.max(maxWidth, longSide + format.getTolerance());
+        }
+
+        //a candidate spans at most two buckets when the buckets are twice as wide as the widest tolerance
+        bucketWidth = Math.max(2 * maxTolerance, 1f);
+        List<List<Integer>> bucketCandidates = new ArrayList<>();
+        for (int i = 0; i <= (int) (maxWidth / bucketWidth); i++) {
+            bucketCandidates.add(new ArrayList<Integer>());
+        }
+        for (int i = 0; i < candidateCount; i++) {
+            int first = Math.max(0, (int) (minWidths[i] / bucketWidth));
+            int last = (int) (maxWidths[i] / bucketWidth);
+            for (int bucket = first; bucket <= last && bucket < bucketCandidates.size(); bucket++) {
+                bucketCandidates.get(bucket).add(i);
+            }
+        }
+        buckets = new int[bucketCandidates.size()][];
+        for (int i = 0; i < buckets.length; i++) {
+            List<Integer> candidates = bucketCandidates.get(i);
+            buckets[i] = candidates.isEmpty() ? NO_CANDIDATES : new int[candidates.size()];
+            for (int j = 0; j < candidates.size(); j++) {
+                buckets[i][j] = candidates.get(j);
+            }
+        }
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Profile with the single size of the checker, in the orientation the checker describes.
+     */
+    public static PageSizeProfile of(DimensionChecker dimensionChecker) {
+        if (dimensionChecker == null) {
+            return null;
+        }
+        PageOrientation orientation = dimensionChecker.getWidth() > dimensionChecker.getHeight() ? PageOrientation.LANDSCAPE : PageOrientation.PORTRAIT;
+        return builder().add("custom", dimensionChecker.getWidth(), dimensionChecker.getHeight(), dimensionChecker.getTolerance(), orientation).build();
+    }
+
+    /**
+     * A4, Letter, A3, A5, Legal and the C4, C5, C6 and DL envelopes in both orientations.
+     */
+    public static PageSizeProfile standard(float tolerance) {
+        return builder()
+                .add("A4", 595.28f, 841.89f, tolerance, PageOrientation.ANY)
+                .add("Letter", 612f, 792f, tolerance, PageOrientation.ANY)
+                .add("A3", 841.89f, 1190.55f, tolerance, PageOrientation.ANY)
+                .add("A5", 419.53f, 595.28f, tolerance, PageOrientation.ANY)
+                .add("Legal", 612f, 1008f, tolerance, PageOrientation.ANY)
+                .add("C4", 649.13f, 918.43f, tolerance, PageOrientation.ANY)
+                .add("C5", 459.21f, 649.13f, tolerance, PageOrientation.ANY)
+                .add("C6", 323.15f, 459.21f, tolerance, PageOrientation.ANY)
+                .add("DL", 311.81f, 623.62f, tolerance, PageOrientation.ANY)
+                .build();
+    }
+
+    public List<PageFormat> getFormats() {
+        return formats;
+    }
+
+    public PageFormat getFormat(int formatIndex) {
+        return formats.get(formatIndex);
+    }
+
+    /**
+     * Match of a displayed page size, decoded with {@link #formatIndex(int)} and {@link #isLandscape(int)},
+     * negative when no format matches.
+     */
+    public int classify(float width, float height) {
+        int bucket = (int) (width / bucketWidth);
+        if (bucket < 0 || bucket >= buckets.length) {
+            return NO_MATCH;
+        }
+        for (int candidate : buckets[bucket]) {
+            if (minWidths[candidate] < width && maxWidths[candidate] > width
+                    && minHeights[candidate] < height && maxHeights[candidate] > height) {
+                return matches[candidate];
+            }
+        }
+        return NO_MATCH;
+    }
+
+    public boolean matches(float width, float height) {
+        return classify(width, height) >= 0;
+    }
+
+    public static int formatIndex(int match) {
+        return match >> 1;
+    }
+
+    public static boolean isLandscape(int match) {
+        return (match & LANDSCAPE) != 0;
+    }
+
+    @Override
+    public String toString() {
+        return formats.toString();
+    }
+
+    private void setCandidate(int candidate, PageFormat format, float width, float height, int match) {
+        //the same float expressions as DimensionChecker, so a converted checker accepts exactly the same sizes
+        minWidths[candidate] = width - format.getTolerance();
+        maxWidths[candidate] = width + format.getTolerance();
+        minHeights[candidate] = height - format.getTolerance();
+        maxHeights[candidate] = height + format.getTolerance();
+        matches[candidate] = match;
+    }
+
+    private static int match(int formatIndex, boolean landscape) {
+        return formatIndex << 1 | (landscape ? LANDSCAPE : 0);
+    }
+
+    public static final class Builder {
+        private final List<PageFormat> formats = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        public Builder add(String name, float width, float height, float tolerance, PageOrientation orientation) {
+            return add(new PageFormat(name, width, height, tolerance, orientation));
+        }
+
+        public Builder add(PageFormat format) {
+            for (PageFormat registered : formats) {
+                if (registered.getName().equals(format.getName())) {
+                    throw new IllegalArgumentException("Page format " + format.getName() + " is already registered");
+                }
+            }
+            formats.add(format);
+            return this;
+        }
+
+        public PageSizeProfile build() {
+            if (formats.isEmpty()) {
+                throw new IllegalStateException("A page size profile needs at least one format");
+            }
+            return new PageSizeProfile(formats);
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.enums.ReaderMode;
+import com.itextpdf.io.source.GetBufferedRandomAccessSource;
+import com.itextpdf.io.source.IRandomAccessSource;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.ReaderProperties;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Creates readers for files on disk. In every mode only the cross-reference table and the objects that are
+ * actually requested are read from the source, so heap usage does not depend on the size of the file. The
+ * default mode maps the file. Random access is a compatibility mode for file systems where mapping fails, it reads
+ * with plain file reads through a small buffer.
+ */
+public final class PdfReaderFactory {
+
+    private PdfReaderFactory() {
+    }
+
+    public static PdfReader open(Path path, ReaderMode readerMode) throws IOException {
+        switch (readerMode) {
+            case RANDOM_ACCESS:
+                //the tokenizer reads byte by byte, the plain source would do a file read for every one of them
+                IRandomAccessSource randomAccessSource = new GetBufferedRandomAccessSource(new RandomAccessSourceFactory()
+                        .setForceRead(false)
+                        .setUsePlainRandomAccess(true)
+                        .createBestSource(path.toString()));
+                return new PdfReader(randomAccessSource, new ReaderProperties());
+            default:
+                return new PdfReader(path.toString());
+        }
+    }
+}
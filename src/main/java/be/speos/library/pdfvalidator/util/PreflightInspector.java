@@ -0,0 +1,342 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.PreflightReport;
+import be.speos.library.pdfvalidator.enums.ReaderMode;
+import com.itextpdf.io.source.PdfTokenizer;
+import com.itextpdf.io.source.RandomAccessFileOrArray;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.kernel.crypto.BadPasswordException;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Cheap checks before a document is validated. The trailer of the last cross-reference section is read to find the
+ * /Encrypt entry, the trailer iText takes the encryption from as well. For the page count the catalog and the root
+ * page tree node are read through the cross-reference tables, only their dictionaries are parsed.
+ * Documents that need more than that, cross-reference streams, objects in object streams, hybrid files or
+ * encrypted documents, are opened with iText instead, and so is every file whose structure does not match.
+ * Whether a password is actually needed is always left to iText.
+ */
+public final class PreflightInspector {
+
+    private static final Logger log = LoggerFactory.getLogger(PreflightInspector.class);
+
+    private static final int TABLE_ENTRY_LENGTH = 20;
+    //incremental updates a lookup follows before the document is opened instead
+    private static final int MAX_SECTIONS = 64;
+    private static final Object SKIPPED = new Object();
+
+    private PreflightInspector() {
+    }
+
+    /**
+     * True when the document has an encryption dictionary, read from the trailer without opening the document.
+     */
+    public static boolean isEncrypted(Path filePath) throws IOException {
+        try (TrailerReader trailerReader = new TrailerReader(filePath)) {
+            return trailerReader.latest.dictionary.containsKey(PdfName.Encrypt.getValue());
+        } catch (IOException | RuntimeException e) {
+            log.info("Trailer of {} could not be read, opening the document instead: {}", filePath, e.getMessage());
+            log.debug(e.getMessage(), e);
+        }
+        return open(filePath, ReaderMode.DEFAULT).isEncrypted();
+    }
+
+    /**
+     * Size, page count and encryption of the document. Unencrypted documents with cross-reference tables are read
+     * without opening them, others with a single open. A document that needs a user password is reported without
+     * page count.
+     */
+    public static PreflightReport inspect(Path filePath) throws IOException {
+        return inspect(filePath, ReaderMode.DEFAULT);
+    }
+
+    /**
+     * Same as {@link #inspect(Path)}, documents that have to be opened are read in the given mode.
+     */
+    static PreflightReport inspect(Path filePath, ReaderMode readerMode) throws IOException {
+        long fileSize = Files.size(filePath);
+        try (TrailerReader trailerReader = new TrailerReader(filePath)) {
+            if (!trailerReader.latest.dictionary.containsKey(PdfName.Encrypt.getValue())) {
+                return new PreflightReport(fileSize, trailerReader.readPageCount(), false, false);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.info("Page count of {} could not be read from the trailer, opening the document instead: {}", filePath, e.getMessage());
+            log.debug(e.getMessage(), e);
+        }
+        return open(filePath, readerMode);
+    }
+
+    /**
+     * Size, page count and encryption of a document that is already open.
+     */
+    static PreflightReport inspect(Path filePath, PdfDocument pdfDoc) throws IOException {
+        return new PreflightReport(Files.size(filePath), pdfDoc.getNumberOfPages(), pdfDoc.getReader().isEncrypted(), false);
+    }
+
+    private static PreflightReport open(Path filePath, ReaderMode readerMode) throws IOException {
+        PdfReader reader = PdfReaderFactory.open(filePath, readerMode);
+        PdfDocument pdfDoc;
+        try {
+            pdfDoc = new PdfDocument(reader);
+        } catch (BadPasswordException e) {
+            log.debug(e.getMessage(), e);
+            reader.close();
+            return new PreflightReport(Files.size(filePath), PreflightReport.UNKNOWN_PAGE_COUNT, true, true);
+        } catch (RuntimeException e) {
+            reader.close();
+            throw e;
+        }
+        try {
+            return inspect(filePath, pdfDoc);
+        } finally {
+            pdfDoc.close();
+        }
+    }
+
+    /**
+     * Cross-reference section with its trailer dictionary. Numbers are kept as text, references as object and
+     * generation number, other values are skipped.
+     */
+    private static final class Section {
+        private final Map<String, Object> dictionary;
+        //first object number, entry count and position of the first entry of every subsection, empty for streams
+        private final List<long[]> subsections;
+
+        private Section(Map<String, Object> dictionary, List<long[]> subsections) {
+            this.dictionary = dictionary;
+            this.subsections = subsections;
+        }
+    }
+
+    private static final class TrailerReader implements Closeable {
+        private final RandomAccessFileOrArray file;
+        private final PdfTokenizer tokens;
+        private final Section latest;
+
+        private TrailerReader(Path filePath) throws IOException {
+            file = new RandomAccessFileOrArray(new RandomAccessSourceFactory().createBestSource(filePath.toString()));
+            tokens = new PdfTokenizer(file);
+            try {
+                tokens.seek(tokens.getStartxref());
+                tokens.nextToken();
+                if (!tokens.tokenValueEqualsTo(PdfTokenizer.Startxref)) {
+                    throw new IOException("startxref not found");
+                }
+                tokens.nextToken();
+                if (tokens.getTokenType() != PdfTokenizer.TokenType.Number) {
+                    throw new IOException("startxref is not followed by a number");
+                }
+                latest = readSection(tokens.getLongValue());
+            } catch (IOException | RuntimeException e) {
+                tokens.close();
+                throw e;
+            }
+        }
+
+        /**
+         * /Count of the page tree root the catalog points to.
+         */
+        private int readPageCount() throws IOException {
+            Map<String, Object> catalog = readObject(toReference(latest.dictionary.get(PdfName.Root.getValue())));
+            Map<String, Object> pages = readObject(toReference(catalog.get(PdfName.Pages.getValue())));
+            Object count = pages.get(PdfName.Count.getValue());
+            if (!(count instanceof String)) {
+                throw new IOException("Page tree root has no direct /Count");
+            }
+            int pageCount = Integer.parseInt((String) count);
+            if (pageCount < 0) {
+                throw new IOException("Negative page count");
+            }
+            return pageCount;
+        }
+
+        private Section readSection(long offset) throws IOException {
+            tokens.seek(offset);
+            tokens.nextValidToken();
+            if (tokens.tokenValueEqualsTo(PdfTokenizer.Xref)) {
+                List<long[]> subsections = readSubsections();
+                return new Section(readDictionary(), subsections);
+            }
+            if (tokens.getTokenType() != PdfTokenizer.TokenType.Obj) {
+                throw new IOException("No cross-reference section at " + offset);
+            }
+            Map<String, Object> dictionary = readDictionary();
+            if (!dictionary.containsKey(PdfName.W.getValue())) {
+                throw new IOException("No cross-reference stream at " + offset);
+            }
+            return new Section(dictionary, Collections.<long[]>emptyList());
+        }
+
+        /**
+         * Skips the table entries by their fixed length, the first and last entry of every subsection are checked so
+         * tables with other entry lengths fail instead of being misread.
+         */
+        private List<long[]> readSubsections() throws IOException {
+            List<long[]> subsections = new ArrayList<>();
+            while (true) {
+                tokens.nextValidToken();
+                if (tokens.tokenValueEqualsTo(PdfTokenizer.Trailer)) {
+                    return subsections;
+                }
+                if (tokens.getTokenType() != PdfTokenizer.TokenType.Number) {
+                    throw new IOException("Invalid cross-reference subsection");
+                }
+                long first = tokens.getLongValue();
+                tokens.nextValidToken();
+                if (tokens.getTokenType() != PdfTokenizer.TokenType.Number) {
+                    throw new IOException("Invalid cross-reference subsection");
+                }
+                int count = tokens.getIntValue();
+                int ch;
+                do {
+                    ch = file.read();
+                } while (ch != -1 && PdfTokenizer.isWhitespace(ch));
+                long position = file.getPosition() - 1;
+                if (count > 0) {
+                    readTableEntry(position);
+                    readTableEntry(position + (long) (count - 1) * TABLE_ENTRY_LENGTH);
+                }
+                subsections.add(new long[]{first, count, position});
+                tokens.seek(position + (long) count * TABLE_ENTRY_LENGTH);
+            }
+        }
+
+        private byte[] readTableEntry(long position) throws IOException {
+            byte[] entry = new byte[TABLE_ENTRY_LENGTH];
+            file.seek(position);
+            file.readFully(entry);
+            for (int i = 0; i < 16; i++) {
+                if (i != 10 && (entry[i] < '0' || entry[i] > '9')) {
+                    throw new IOException("Invalid cross-reference entry at " + position);
+                }
+            }
+            if (entry[10] != ' ' || entry[16] != ' ' || (entry[17] != 'n' && entry[17] != 'f')
+                    || !PdfTokenizer.isWhitespace(entry[18]) || !PdfTokenizer.isWhitespace(entry[19])) {
+                throw new IOException("Invalid cross-reference entry at " + position);
+            }
+            return entry;
+        }
+
+        /**
+         * Dictionary of the object, looked up in the newest section that has an entry for it.
+         */
+        private Map<String, Object> readObject(int[] reference) throws IOException {
+            long offset = findOffset(reference[0], reference[1]);
+            tokens.seek(offset);
+            tokens.nextValidToken();
+            if (tokens.getTokenType() != PdfTokenizer.TokenType.Obj || tokens.getObjNr() != reference[0]
+                    || tokens.getGenNr() != reference[1]) {
+                throw new IOException("Object " + reference[0] + " not found at " + offset);
+            }
+            return readDictionary();
+        }
+
+        private long findOffset(int number, int generation) throws IOException {
+            Section section = latest;
+            for (int i = 0; i < MAX_SECTIONS; i++) {
+                //hybrid files keep part of their objects in a cross-reference stream the tables do not list
+                if (section.subsections.isEmpty() || section.dictionary.containsKey(PdfName.XRefStm.getValue())) {
+                    throw new IOException("Object " + number + " is not listed in a cross-reference table");
+                }
+                for (long[] subsection : section.subsections) {
+                    if (number >= subsection[0] && number < subsection[0] + subsection[1]) {
+                        byte[] entry = readTableEntry(subsection[2] + (number - subsection[0]) * TABLE_ENTRY_LENGTH);
+                        if (entry[17] != 'n' || Integer.parseInt(new String(entry, 11, 5, StandardCharsets.ISO_8859_1)) != generation) {
+                            throw new IOException("Object " + number + " is free or has another generation");
+                        }
+                        return Long.parseLong(new String(entry, 0, 10, StandardCharsets.ISO_8859_1));
+                    }
+                }
+                Object prev = section.dictionary.get(PdfName.Prev.getValue());
+                if (!(prev instanceof String)) {
+                    throw new IOException("Object " + number + " not found");
+                }
+                section = readSection(Long.parseLong((String) prev));
+            }
+            throw new IOException("More than " + MAX_SECTIONS + " cross-reference sections");
+        }
+
+        private Map<String, Object> readDictionary() throws IOException {
+            tokens.nextValidToken();
+            if (tokens.getTokenType() != PdfTokenizer.TokenType.StartDic) {
+                throw new IOException("Dictionary not found");
+            }
+            Map<String, Object> dictionary = new HashMap<>();
+            while (true) {
+                tokens.nextValidToken();
+                if (tokens.getTokenType() == PdfTokenizer.TokenType.EndDic) {
+                    return dictionary;
+                }
+                if (tokens.getTokenType() != PdfTokenizer.TokenType.Name) {
+                    throw new IOException("Dictionary key is not a name");
+                }
+                String key = new PdfName(tokens.getByteContent()).getValue();
+                dictionary.put(key, readValue());
+            }
+        }
+
+        private Object readValue() throws IOException {
+            tokens.nextValidToken();
+            switch (tokens.getTokenType()) {
+                case Number:
+                    return tokens.getStringValue();
+                case Ref:
+                    return new int[]{tokens.getObjNr(), tokens.getGenNr()};
+                case StartDic:
+                case StartArray:
+                    skipNested();
+                    return SKIPPED;
+                case EndDic:
+                case EndArray:
+                case EndOfFile:
+                    throw new IOException("Invalid dictionary value");
+                default:
+                    return SKIPPED;
+            }
+        }
+
+        private void skipNested() throws IOException {
+            int depth = 1;
+            while (depth > 0) {
+                tokens.nextValidToken();
+                switch (tokens.getTokenType()) {
+                    case StartDic:
+                    case StartArray:
+                        depth++;
+                        break;
+                    case EndDic:
+                    case EndArray:
+                        depth--;
+                        break;
+                    case EndOfFile:
+                        throw new IOException("Unexpected end of file in a dictionary");
+                    default:
+                        break;
+                }
+            }
+        }
+
+        private static int[] toReference(Object value) throws IOException {
+            if (!(value instanceof int[])) {
+                throw new IOException("Expected an indirect reference");
+            }
+            return (int[]) value;
+        }
+
+        @Override
+        public void close() throws IOException {
+            tokens.close();
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package be.speos.library.pdfvalidator.util;
+
+import com.itextpdf.kernel.geom.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of rectangles packed as x, y, width, height in a single float array, so collecting
+ * boxes while parsing content does not allocate an object per box.
+ */
+class RectangleBuffer {
+
+    private static final int FIELDS = 4;
+
+    private float[] values;
+    private int size;
+
+    RectangleBuffer() {
+        this(64);
+    }
+
+    RectangleBuffer(int initialCapacity) {
+        values = new float[Math.max(1, initialCapacity) * FIELDS];
+    }
+
+    void add(float x, float y, float width, float height) {
+        int offset = size * FIELDS;
+        if (offset + FIELDS > values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+        values[offset] = x;
+        values[offset + 1] = y;
+        values[offset + 2] = width;
+        values[offset + 3] = height;
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    float getLeft(int index) {
+        return values[index * FIELDS];
+    }
+
+    float getBottom(int index) {
+        return values[index * FIELDS + 1];
+    }
+
+    float getRight(int index) {
+        return values[index * FIELDS] + values[index * FIELDS + 2];
+    }
+
+    float getTop(int index) {
+        return values[index * FIELDS + 1] + values[index * FIELDS + 3];
+    }
+
+    Rectangle toRectangle(int index) {
+        int offset = index * FIELDS;
+        return new Rectangle(values[offset], values[offset + 1], values[offset + 2], values[offset + 3]);
+    }
+}
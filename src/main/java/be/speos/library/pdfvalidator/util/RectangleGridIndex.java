@@ -0,0 +1,190 @@
+package be.speos.library.pdfvalidator.util;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid over a fixed set of rectangles, used to find intersection candidates without comparing
+ * every query against every rectangle. A rectangle is registered in every cell its bounds touch, a query
+ * only looks at the rectangles of the cells it touches and then applies the exact intersection test, so
+ * results are identical to a full pairwise comparison.
+ */
+class RectangleGridIndex {
+
+    private static final int MAX_CELLS_PER_AXIS = 64;
+
+    private final RectangleBuffer rectangles;
+    private final int[] unbounded;
+    private final int[] cellStart;
+    private final int[] cellEntries;
+    private final int[] visited;
+    private int visitStamp;
+
+    private final int columns;
+    private final int rows;
+    private final float minX;
+    private final float minY;
+    private final float maxX;
+    private final float maxY;
+    private final float cellWidth;
+    private final float cellHeight;
+
+    RectangleGridIndex(RectangleBuffer rectangles) {
+        this.rectangles = rectangles;
+        int count = rectangles.size();
+        visited = new int[count];
+
+        float lowX = Float.MAX_VALUE;
+        float lowY = Float.MAX_VALUE;
+        float highX = -Float.MAX_VALUE;
+        float highY = -Float.MAX_VALUE;
+        int unboundedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isFinite(rectangles, i)) {
+                unboundedCount++;
+                continue;
+            }
+            lowX = Math.min(lowX, minX(rectangles, i));
+            lowY = Math.min(lowY, minY(rectangles, i));
+            highX = Math.max(highX, maxX(rectangles, i));
+            highY = Math.max(highY, maxY(rectangles, i));
+        }
+        minX = lowX;
+        minY = lowY;
+        maxX = highX;
+        maxY = highY;
+
+        int cellsPerAxis = Math.max(1, Math.min(MAX_CELLS_PER_AXIS, (int) Math.ceil(Math.sqrt(count))));
+        columns = highX > lowX ? cellsPerAxis : 1;
+        rows = highY > lowY ? cellsPerAxis : 1;
+        cellWidth = highX > lowX ? (highX - lowX) / columns : 1;
+        cellHeight = highY > lowY ? (highY - lowY) / rows : 1;
+
+        unbounded = new int[unboundedCount];
+        int[] cellCounts = new int[columns * rows];
+        unboundedCount = 0;
+        for (int i = 0; i < count; i++) {
+            if (!isFinite(rectangles, i)) {
+                unbounded[unboundedCount++] = i;
+                continue;
+            }
+            for (int row = row(minY(rectangles, i)); row <= row(maxY(rectangles, i)); row++) {
+                for (int column = column(minX(rectangles, i)); column <= column(maxX(rectangles, i)); column++) {
+                    cellCounts[row * columns + column]++;
+                }
+            }
+        }
+
+        cellStart = new int[cellCounts.length + 1];
+        for (int cell = 0; cell < cellCounts.length; cell++) {
+            cellStart[cell + 1] = cellStart[cell] + cellCounts[cell];
+        }
+        cellEntries = new int[cellStart[cellCounts.length]];
+        int[] fill = new int[cellCounts.length];
+        for (int i = 0; i < count; i++) {
+            if (!isFinite(rectangles, i)) {
+                continue;
+            }
+            for (int row = row(minY(rectangles, i)); row <= row(maxY(rectangles, i)); row++) {
+                for (int column = column(minX(rectangles, i)); column <= column(maxX(rectangles, i)); column++) {
+                    int cell = row * columns + column;
+                    cellEntries[cellStart[cell] + fill[cell]++] = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Marks every indexed rectangle intersecting the query rectangle in the hits array.
+     */
+    void collectIntersecting(RectangleBuffer queries, int query, boolean[] hits) {
+        if (++visitStamp == 0) {
+            Arrays.fill(visited, 0);
+            visitStamp = 1;
+        }
+
+        if (!isFinite(queries, query)) {
+            for (int i = 0; i < rectangles.size(); i++) {
+                test(queries, query, i, hits);
+            }
+            return;
+        }
+        for (int index : unbounded) {
+            test(queries, query, index, hits);
+        }
+        if (maxX(queries, query) < minX || minX(queries, query) > maxX || maxY(queries, query) < minY || minY(queries, query) > maxY) {
+            return;
+        }
+        int lastRow = row(maxY(queries, query));
+        int lastColumn = column(maxX(queries, query));
+        for (int row = row(minY(queries, query)); row <= lastRow; row++) {
+            for (int column = column(minX(queries, query)); column <= lastColumn; column++) {
+                int cell = row * columns + column;
+                for (int entry = cellStart[cell]; entry < cellStart[cell + 1]; entry++) {
+                    test(queries, query, cellEntries[entry], hits);
+                }
+            }
+        }
+    }
+
+    private void test(RectangleBuffer queries, int query, int index, boolean[] hits) {
+        if (visited[index] == visitStamp) {
+            return;
+        }
+        visited[index] = visitStamp;
+        if (!hits[index] && intersect(queries, query, rectangles, index)) {
+            hits[index] = true;
+        }
+    }
+
+    private int column(float x) {
+        return clamp((int) ((x - minX) / cellWidth), columns);
+    }
+
+    private int row(float y) {
+        return clamp((int) ((y - minY) / cellHeight), rows);
+    }
+
+    private static int clamp(int cell, int cells) {
+        return cell < 0 ? 0 : (cell >= cells ? cells - 1 : cell);
+    }
+
+    // Widths and heights can be negative after margins are applied, so the bounds are normalized.
+    // Whenever intersect() holds, one start point lies inside both normalized extents, which keeps the
+    // grid lookup a superset of the exact test.
+    private static float minX(RectangleBuffer buffer, int index) {
+        return Math.min(buffer.getLeft(index), buffer.getRight(index));
+    }
+
+    private static float maxX(RectangleBuffer buffer, int index) {
+        return Math.max(buffer.getLeft(index), buffer.getRight(index));
+    }
+
+    private static float minY(RectangleBuffer buffer, int index) {
+        return Math.min(buffer.getBottom(index), buffer.getTop(index));
+    }
+
+    private static float maxY(RectangleBuffer buffer, int index) {
+        return Math.max(buffer.getBottom(index), buffer.getTop(index));
+    }
+
+    private static boolean isFinite(RectangleBuffer buffer, int index) {
+        return isFinite(buffer.getLeft(index)) && isFinite(buffer.getRight(index))
+                && isFinite(buffer.getBottom(index)) && isFinite(buffer.getTop(index));
+    }
+
+    private static boolean isFinite(float value) {
+        return !Float.isNaN(value) && !Float.isInfinite(value);
+    }
+
+    static boolean intersect(RectangleBuffer a, int indexA, RectangleBuffer b, int indexB) {
+        return intersect(a.getLeft(indexA), a.getRight(indexA), b.getLeft(indexB), b.getRight(indexB)) &&
+                intersect(a.getBottom(indexA), a.getTop(indexA), b.getBottom(indexB), b.getTop(indexB));
+    }
+
+    private static boolean intersect(float start1, float end1, float start2, float end2) {
+        if (start1 < start2)
+            return start2 <= end1;
+        else
+            return start1 <= end2;
+    }
+}
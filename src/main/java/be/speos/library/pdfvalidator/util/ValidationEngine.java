@@ -0,0 +1,265 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.cache.ValidationResultCache;
+import be.speos.library.pdfvalidator.dto.CheckResult;
+import be.speos.library.pdfvalidator.dto.PreflightReport;
+import be.speos.library.pdfvalidator.dto.ValidationReport;
+import be.speos.library.pdfvalidator.enums.ReaderMode;
+import be.speos.library.pdfvalidator.enums.ValidationCheck;
+import be.speos.library.pdfvalidator.metrics.Instrumentation;
+import be.speos.library.pdfvalidator.metrics.Phase;
+import com.itextpdf.kernel.crypto.BadPasswordException;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+/**
+ * Runs a set of {@link ValidationCheck}s against a document that is opened only once,
+ * instead of letting every {@link PDFValidator} method parse the file on its own.
+ * All checks, {@link ValidationCheck#OVERLAPPING} included, look at the given file. To check the output of a
+ * {@link FileManipulator} for overlaps, validate the manipulated file instead of the original; unlike
+ * {@link PDFValidator#validateOverlapping(String, String)} the engine does not look in the {@code overlay} directory.
+ */
+public class ValidationEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(ValidationEngine.class);
+    //checks that need no more than the preflight report
+    private static final Set<ValidationCheck> PREFLIGHT_CHECKS = EnumSet.of(ValidationCheck.PASSWORD, ValidationCheck.PAGE_WEIGHT);
+
+    private final PageSizeProfile pageSizeProfile;
+    private final Set<ValidationCheck> checks;
+    private final ReaderMode readerMode;
+    private final Instrumentation instrumentation;
+    private final ValidationResultCache resultCache;
+    private final String configuration;
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    private ValidationEngine(Builder builder) {
+        this.pageSizeProfile = builder.pageSizeProfile;
+        this.checks = builder.checks.isEmpty() ? EnumSet.noneOf(ValidationCheck.class) : EnumSet.copyOf(builder.checks);
+        this.readerMode = builder.readerMode;
+        this.instrumentation = builder.instrumentation;
+        this.resultCache = builder.resultCache;
+        this.configuration = createConfiguration(pageSizeProfile, this.checks);
+    }
+
+    public ValidationReport validate(String path, String filename) {
+        return validate(Paths.get(path, filename));
+    }
+
+    public ValidationReport validate(Path filePath) {
+        String fileName = filePath.getFileName().toString();
+        if (resultCache == null) {
+            ValidationReport report = new ValidationReport(fileName);
+            validate(filePath, report);
+            return report;
+        }
+
+        FileTime lastModified;
+        String contentHash;
+        try {
+            lastModified = Files.getLastModifiedTime(filePath);
+            contentHash = ValidationResultCache.hash(filePath);
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+            ValidationReport report = new ValidationReport(fileName);
+            validate(filePath, report);
+            return report;
+        }
+        ValidationReport cached = resultCache.getReport(contentHash, configuration, fileName);
+        if (cached != null) {
+            return cached;
+        }
+
+        ValidationReport report = new ValidationReport(fileName);
+        //reports of unreadable documents and of files changed while validating are not cached
+        if (validate(filePath, report) && isUnchanged(filePath, lastModified)) {
+            resultCache.putReport(contentHash, configuration, report);
+        }
+        return report;
+    }
+
+    /**
+     * Adds the results of all checks to the report, false when the document could not be read.
+     * When only the password and page weight are checked the document is inspected without opening it where possible,
+     * for the password alone the trailer is probed and documents without encryption are not opened.
+     */
+    private boolean validate(Path filePath, ValidationReport report) {
+        if (!checks.isEmpty() && PREFLIGHT_CHECKS.containsAll(checks)) {
+            long preflightStart = instrumentation.startTimer();
+            try {
+                if (checks.contains(ValidationCheck.PAGE_WEIGHT)) {
+                    PreflightReport preflightReport = PreflightInspector.inspect(filePath, readerMode);
+                    instrumentation.stopTimer(Phase.PREFLIGHT, preflightStart);
+                    if (preflightReport.isPasswordRequired()) {
+                        failAll(report, "Document is password protected");
+                        return true;
+                    }
+                    for (ValidationCheck check : checks) {
+                        long checkStart = instrumentation.startTimer();
+                        report.addResult(runCheck(check, preflightReport, null));
+                        instrumentation.stopTimer(Phase.of(check), checkStart);
+                    }
+                    return true;
+                }
+                boolean encrypted = PreflightInspector.isEncrypted(filePath);
+                instrumentation.stopTimer(Phase.PREFLIGHT, preflightStart);
+                if (!encrypted) {
+                    report.addResult(CheckResult.passed(ValidationCheck.PASSWORD));
+                    return true;
+                }
+            } catch (IOException e) {
+                log.debug(e.getMessage(), e);
+                instrumentation.recordError(Phase.PREFLIGHT, e);
+                failAll(report, "Document could not be read: " + e.getMessage());
+                return false;
+            }
+        }
+
+        long openStart = instrumentation.startTimer();
+        try (PdfDocument pdfDoc = new PdfDocument(PdfReaderFactory.open(filePath, readerMode))) {
+            instrumentation.stopTimer(Phase.OPEN, openStart);
+            PreflightReport preflightReport = PreflightInspector.inspect(filePath, pdfDoc);
+            for (ValidationCheck check : checks) {
+                long checkStart = instrumentation.startTimer();
+                report.addResult(runCheck(check, preflightReport, pdfDoc));
+                instrumentation.stopTimer(Phase.of(check), checkStart);
+            }
+        } catch (BadPasswordException e) {
+            log.debug(e.getMessage(), e);
+            instrumentation.recordError(Phase.OPEN, e);
+            failAll(report, "Document is password protected");
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+            instrumentation.recordError(Phase.OPEN, e);
+            failAll(report, "Document could not be read: " + e.getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Everything besides the content that changes the report, part of the result cache key.
+     */
+    private static String createConfiguration(PageSizeProfile pageSizeProfile, Set<ValidationCheck> checks) {
+        if (pageSizeProfile == null) {
+            return "checks=" + checks;
+        }
+        return "checks=" + checks + ";formats=" + pageSizeProfile;
+    }
+
+    private static boolean isUnchanged(Path filePath, FileTime lastModified) {
+        try {
+            return lastModified.equals(Files.getLastModifiedTime(filePath));
+        } catch (IOException e) {
+            log.debug(e.getMessage(), e);
+            return false;
+        }
+    }
+
+    private CheckResult runCheck(ValidationCheck check, PreflightReport preflightReport, PdfDocument pdfDoc) {
+        switch (check) {
+            case PASSWORD:
+                return CheckResult.passed(check);
+            case SAME_SIZE:
+                return toResult(check, PDFValidator.findDifferentSizePages(pdfDoc, pageSizeProfile));
+            case EMBEDDED_FONTS:
+                return toResult(check, PDFValidator.findUnembeddedFonts(pdfDoc));
+            case PAGE_WEIGHT:
+                double averageWeight = preflightReport.getAveragePageWeight();
+                if (averageWeight > PDFValidator.ALLOWED_PAGE_WEIGHT) {
+                    return CheckResult.failed(check, Collections.singletonList(String.valueOf(averageWeight)));
+                }
+                return CheckResult.passed(check);
+            case OVERLAPPING:
+                List<String> overlappingPages = new ArrayList<>();
+                for (int pageNumber : OverlapDetector.detectResult(pdfDoc, instrumentation).getOverlappingPages()) {
+                    overlappingPages.add(String.valueOf(pageNumber));
+                }
+                return toResult(check, overlappingPages);
+            default:
+                throw new IllegalArgumentException("Unsupported validation check " + check);
+        }
+    }
+
+    private static CheckResult toResult(ValidationCheck check, List<String> errors) {
+        return errors.isEmpty() ? CheckResult.passed(check) : CheckResult.failed(check, errors);
+    }
+
+    private void failAll(ValidationReport report, String reason) {
+        for (ValidationCheck check : checks) {
+            report.addResult(CheckResult.failed(check, Collections.singletonList(reason)));
+        }
+    }
+
+    public static class Builder {
+        private PageSizeProfile pageSizeProfile;
+        private Set<ValidationCheck> checks = EnumSet.allOf(ValidationCheck.class);
+        private ReaderMode readerMode = ReaderMode.DEFAULT;
+        private Instrumentation instrumentation = Instrumentation.NOOP;
+        private ValidationResultCache resultCache;
+
+        private Builder() {
+        }
+
+        public Builder dimensionChecker(DimensionChecker dimensionChecker) {
+            this.pageSizeProfile = PageSizeProfile.of(dimensionChecker);
+            return this;
+        }
+
+        /**
+         * Formats the same size check accepts, pages of different formats may be mixed. Replaces the single size of a
+         * dimension checker.
+         */
+        public Builder pageSizeProfile(PageSizeProfile pageSizeProfile) {
+            this.pageSizeProfile = pageSizeProfile;
+            return this;
+        }
+
+        /**
+         * Checks to run, all checks when not set.
+         */
+        public Builder checks(Set<ValidationCheck> checks) {
+            this.checks = checks;
+            return this;
+        }
+
+        public Builder readerMode(ReaderMode readerMode) {
+            this.readerMode = readerMode;
+            return this;
+        }
+
+        public Builder instrumentation(Instrumentation instrumentation) {
+            this.instrumentation = instrumentation;
+            return this;
+        }
+
+        /**
+         * Reports of documents with the same content and configuration are reused, no caching when not set.
+         */
+        public Builder resultCache(ValidationResultCache resultCache) {
+            this.resultCache = resultCache;
+            return this;
+        }
+
+        public ValidationEngine build() {
+            if (checks == null || readerMode == null || instrumentation == null) {
+                throw new IllegalStateException("Checks, a reader mode and an instrumentation are required");
+            }
+            if (pageSizeProfile == null && checks.contains(ValidationCheck.SAME_SIZE)) {
+                throw new IllegalStateException("The same size check needs a dimension checker or page size profile");
+            }
+            return new ValidationEngine(this);
+        }
+    }
+}
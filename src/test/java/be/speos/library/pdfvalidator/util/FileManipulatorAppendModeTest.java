@@ -0,0 +1,93 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileManipulatorAppendModeTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void appendsAfterTheOriginal() throws Exception {
+        Path original = write("plain.pdf", new byte[0]);
+        Path destination = directory.resolve("plain-out.pdf");
+        manipulator(false).manipulateFile(original, destination, overlays());
+
+        byte[] originalBytes = Files.readAllBytes(original);
+        byte[] output = Files.readAllBytes(destination);
+        assertTrue(output.length > originalBytes.length);
+        for (int i = 0; i < originalBytes.length; i++) {
+            assertEquals(originalBytes[i], output[i], "original byte " + i + " changed");
+        }
+        assertStamped(destination);
+    }
+
+    @Test
+    void rewritesDocumentsWithBytesBeforeTheHeader() throws Exception {
+        for (boolean lowMemory : new boolean[]{false, true}) {
+            Path original = write("prefixed.pdf", "junk before\r\n".getBytes(StandardCharsets.ISO_8859_1));
+            Path destination = directory.resolve("prefixed-out-" + lowMemory + ".pdf");
+            manipulator(lowMemory).manipulateFile(original, destination, overlays());
+            assertStamped(destination);
+
+            Path bufferDestination = directory.resolve("prefixed-buffer-out-" + lowMemory + ".pdf");
+            try (OutputStream output = Files.newOutputStream(bufferDestination)) {
+                manipulator(lowMemory).manipulateFile(ByteBuffer.wrap(Files.readAllBytes(original)), output, overlays());
+            }
+            assertStamped(bufferDestination);
+        }
+    }
+
+    private Path write(String fileName, byte[] prefix) throws Exception {
+        byte[] document = TestDocuments.createDocument(3);
+        byte[] content = new byte[prefix.length + document.length];
+        System.arraycopy(prefix, 0, content, 0, prefix.length);
+        System.arraycopy(document, 0, content, prefix.length, document.length);
+        return Files.write(directory.resolve(fileName), content);
+    }
+
+    private FileManipulator manipulator(boolean lowMemory) throws Exception {
+        TestDocuments.createOverlay(directory.resolve("overlays").resolve("overlay.pdf"));
+        return FileManipulator.builder()
+                .dimensions(595, 842, 5)
+                .overlayPath(directory.resolve("overlays").toString())
+                .appendMode(true)
+                .lowMemory(lowMemory)
+                .build();
+    }
+
+    private static Map<OverlayListType, OverlayDetail> overlays() {
+        Map<OverlayListType, OverlayDetail> overlays = new EnumMap<>(OverlayListType.class);
+        overlays.put(OverlayListType.ALL_PAGE, new OverlayDetail(Collections.singletonList("overlay.pdf"), false));
+        return overlays;
+    }
+
+    private static void assertStamped(Path file) throws Exception {
+        PdfReader reader = new PdfReader(file.toString());
+        try (PdfDocument pdfDoc = new PdfDocument(reader)) {
+            assertFalse(reader.hasRebuiltXref(), "xref of " + file.getFileName() + " had to be rebuilt");
+            assertEquals(3, pdfDoc.getNumberOfPages());
+            for (int page = 1; page <= 3; page++) {
+                assertTrue(pdfDoc.getPage(page).getContentBytes().length > 0);
+                assertNotNull(pdfDoc.getPage(page).getResources().getResource(PdfName.XObject), "page " + page + " has no overlay");
+            }
+        }
+    }
+}
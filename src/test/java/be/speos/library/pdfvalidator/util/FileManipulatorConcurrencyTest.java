@@ -0,0 +1,141 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.OverlayDetail;
+import be.speos.library.pdfvalidator.dto.PageSelectionDto;
+import be.speos.library.pdfvalidator.enums.OverlayListType;
+import be.speos.library.pdfvalidator.enums.PageType;
+import com.itextpdf.kernel.pdf.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * One manipulator shared by several threads must produce the same documents as when it is used by a single thread.
+ * Output bytes differ in the document id and dates, so pages are compared by their content and overlay forms.
+ */
+class FileManipulatorConcurrencyTest {
+
+    private static final int THREADS = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+    private static final int ROUNDS = 3;
+    private static final int[] PAGE_COUNTS = {2, 3, 6, 9};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void sharedManipulatorMatchesSequentialOutput() throws Exception {
+        Path overlays = directory.resolve("overlays");
+        TestDocuments.createOverlay(overlays.resolve("first.pdf"), "FIRST PAGE");
+        TestDocuments.createOverlay(overlays.resolve("all.pdf"), "ALL PAGES");
+        TestDocuments.createOverlay(overlays.resolve("payment.pdf"), "PAYMENT");
+        FileManipulator fileManipulator = FileManipulator.builder()
+                .dimensions(595, 842, 5)
+                .overlayPath(overlays.toString())
+                .cacheSize(16, 8L * 1024 * 1024)
+                .build();
+
+        List<byte[]> documents = new ArrayList<>();
+        List<byte[]> expected = new ArrayList<>();
+        for (int i = 0; i < PAGE_COUNTS.length; i++) {
+            documents.add(TestDocuments.createDocument("Document " + i, PAGE_COUNTS[i]));
+        }
+        //every task is one call, overlays and overlap markers alternate
+        int taskCount = 2 * documents.size();
+        for (int task = 0; task < taskCount; task++) {
+            expected.add(fingerprint(run(fileManipulator, documents, task)));
+        }
+        //a mix-up between calls can only be seen when every call has its own result
+        for (int task = 0; task < taskCount; task++) {
+            assertFalse(Arrays.equals(fingerprint(documents.get(task / 2)), expected.get(task)), "task " + task + " changed nothing");
+            for (int other = 0; other < task; other++) {
+                assertFalse(Arrays.equals(expected.get(other), expected.get(task)), "tasks " + other + " and " + task + " have the same result");
+            }
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<?>> results = new ArrayList<>();
+            for (int thread = 0; thread < THREADS; thread++) {
+                int offset = thread;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < ROUNDS * taskCount; i++) {
+                        int task = (offset + i) % taskCount;
+                        assertArrayEquals(expected.get(task), fingerprint(run(fileManipulator, documents, task)),
+                                "thread " + offset + " task " + task + " differs from the sequential output");
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> result : results) {
+                try {
+                    result.get(2, TimeUnit.MINUTES);
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof AssertionError) {
+                        throw (AssertionError) e.getCause();
+                    }
+                    throw e;
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static byte[] run(FileManipulator fileManipulator, List<byte[]> documents, int task) throws IOException {
+        byte[] document = documents.get(task / 2);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        if (task % 2 == 0) {
+            fileManipulator.manipulateFile(ByteBuffer.wrap(document), output, overlays(PAGE_COUNTS[task / 2]));
+        } else {
+            fileManipulator.manipulateFileWithOverlappingValidation(ByteBuffer.wrap(document), output);
+        }
+        return output.toByteArray();
+    }
+
+    private static Map<OverlayListType, OverlayDetail> overlays(int pageCount) {
+        PageSelectionDto paymentPages = new PageSelectionDto();
+        paymentPages.setPageType(PageType.RANGE.getPageTypeName());
+        paymentPages.setRangeFrom(1);
+        paymentPages.setRangeTo(Math.max(1, pageCount / 2));
+
+        Map<OverlayListType, OverlayDetail> overlays = new EnumMap<>(OverlayListType.class);
+        overlays.put(OverlayListType.FIRST_PAGE, new OverlayDetail(Collections.singletonList("first.pdf"), false));
+        overlays.put(OverlayListType.ALL_PAGE, new OverlayDetail(Arrays.asList("all.pdf", "first.pdf"), false));
+        overlays.put(OverlayListType.PAYMENT, new OverlayDetail(Collections.singletonList("payment.pdf"), true, paymentPages));
+        return overlays;
+    }
+
+    /**
+     * Page count, then the content of every page followed by its form XObjects in name order.
+     */
+    private static byte[] fingerprint(byte[] pdf) throws IOException {
+        ByteArrayOutputStream fingerprint = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfReader(new ByteArrayInputStream(pdf)))) {
+            fingerprint.write(pdfDoc.getNumberOfPages());
+            for (int page = 1; page <= pdfDoc.getNumberOfPages(); page++) {
+                PdfPage pdfPage = pdfDoc.getPage(page);
+                fingerprint.write(pdfPage.getContentBytes());
+                PdfDictionary xObjects = pdfPage.getResources().getResource(PdfName.XObject);
+                if (xObjects != null) {
+                    for (PdfName name : new TreeSet<>(xObjects.keySet())) {
+                        fingerprint.write(name.getValue().getBytes("ISO-8859-1"));
+                        fingerprint.write(xObjects.getAsStream(name).getBytes());
+                    }
+                }
+            }
+        }
+        return fingerprint.toByteArray();
+    }
+}
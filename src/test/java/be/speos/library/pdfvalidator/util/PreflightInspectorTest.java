@@ -0,0 +1,88 @@
+package be.speos.library.pdfvalidator.util;
+
+import be.speos.library.pdfvalidator.dto.PreflightReport;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.*;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreflightInspectorTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsThePageCountFromTheTrailer() throws Exception {
+        Path file = Files.write(directory.resolve("plain.pdf"), TestDocuments.createDocument(4));
+        assertFalse(PreflightInspector.isEncrypted(file));
+        assertReport(file, 4, false);
+    }
+
+    @Test
+    void followsIncrementalUpdates() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PdfReader reader = new PdfReader(new ByteArrayInputStream(TestDocuments.createDocument(3)));
+        try (PdfDocument pdfDoc = new PdfDocument(reader, new PdfWriter(output), new StampingProperties().useAppendMode())) {
+            pdfDoc.addNewPage(PageSize.A4);
+            pdfDoc.addNewPage(PageSize.A4);
+        }
+        assertReport(Files.write(directory.resolve("updated.pdf"), output.toByteArray()), 5, false);
+    }
+
+    @Test
+    void opensDocumentsItCannotReadFromTheTrailer() throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PdfReader reader = new PdfReader(new ByteArrayInputStream(TestDocuments.createDocument(3)));
+        try (PdfDocument ignored = new PdfDocument(reader, new PdfWriter(output, new WriterProperties().setFullCompressionMode(true)))) {
+            //object and cross-reference streams
+        }
+        assertReport(Files.write(directory.resolve("compressed.pdf"), output.toByteArray()), 3, false);
+
+        byte[] prefix = "junk before\r\n".getBytes(StandardCharsets.ISO_8859_1);
+        byte[] document = TestDocuments.createDocument(2);
+        byte[] content = new byte[prefix.length + document.length];
+        System.arraycopy(prefix, 0, content, 0, prefix.length);
+        System.arraycopy(document, 0, content, prefix.length, document.length);
+        assertReport(Files.write(directory.resolve("prefixed.pdf"), content), 2, false);
+    }
+
+    @Test
+    void leavesThePasswordToITextForEncryptedDocuments() throws Exception {
+        Path ownerPassword = encrypt("owner.pdf", null);
+        assertTrue(PreflightInspector.isEncrypted(ownerPassword));
+        assertReport(ownerPassword, 3, true);
+
+        Path userPassword = encrypt("user.pdf", "user".getBytes(StandardCharsets.ISO_8859_1));
+        assertTrue(PreflightInspector.isEncrypted(userPassword));
+        PreflightReport report = PreflightInspector.inspect(userPassword);
+        assertTrue(report.isPasswordRequired());
+        assertEquals(PreflightReport.UNKNOWN_PAGE_COUNT, report.getPageCount());
+    }
+
+    private Path encrypt(String fileName, byte[] userPassword) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        WriterProperties properties = new WriterProperties().setStandardEncryption(userPassword,
+                "owner".getBytes(StandardCharsets.ISO_8859_1), EncryptionConstants.ALLOW_PRINTING, EncryptionConstants.STANDARD_ENCRYPTION_128);
+        PdfReader reader = new PdfReader(new ByteArrayInputStream(TestDocuments.createDocument(3)));
+        try (PdfDocument ignored = new PdfDocument(reader, new PdfWriter(output, properties))) {
+            //encrypted copy
+        }
+        return Files.write(directory.resolve(fileName), output.toByteArray());
+    }
+
+    private static void assertReport(Path file, int pageCount, boolean encrypted) throws Exception {
+        PreflightReport report = PreflightInspector.inspect(file);
+        assertEquals(Files.size(file), report.getFileSize());
+        assertEquals(pageCount, report.getPageCount());
+        assertEquals(encrypted, report.isEncrypted());
+        assertFalse(report.isPasswordRequired());
+    }
+}
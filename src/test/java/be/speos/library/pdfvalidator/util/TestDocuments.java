@@ -0,0 +1,64 @@
+package be.speos.library.pdfvalidator.util;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.colors.ColorConstants;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.geom.PageSize;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Small generated documents for the tests, so no test files have to be shipped.
+ */
+final class TestDocuments {
+
+    private TestDocuments() {
+    }
+
+    static byte[] createDocument(int pageCount) throws IOException {
+        return createDocument("Document", pageCount);
+    }
+
+    /**
+     * A4 pages with a few text lines starting with the name, every second page crossed by a red guide line.
+     */
+    static byte[] createDocument(String name, int pageCount) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(output))) {
+            PdfFont font = PdfFontFactory.createFont(StandardFonts.HELVETICA);
+            for (int page = 1; page <= pageCount; page++) {
+                PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage(PageSize.A4));
+                for (int line = 0; line < 10; line++) {
+                    canvas.beginText().setFontAndSize(font, 10).moveText(50, 780 - line * 14).showText(name + " page " + page + " line " + line).endText();
+                }
+                if (page % 2 == 0) {
+                    canvas.setStrokeColor(ColorConstants.RED).moveTo(100, 650).lineTo(100, 800).stroke();
+                }
+            }
+        }
+        return output.toByteArray();
+    }
+
+    static void createOverlay(Path file) throws IOException {
+        createOverlay(file, file.getFileName().toString());
+    }
+
+    /**
+     * Single A4 page with a filled rectangle and the label, used as overlay.
+     */
+    static void createOverlay(Path file, String label) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (PdfDocument pdfDoc = new PdfDocument(new PdfWriter(file.toString()))) {
+            PdfCanvas canvas = new PdfCanvas(pdfDoc.addNewPage(PageSize.A4));
+            canvas.setFillColor(ColorConstants.BLUE).rectangle(20, 20, 100, 40).fill();
+            canvas.beginText().setFontAndSize(PdfFontFactory.createFont(StandardFonts.HELVETICA), 12).moveText(20, 70).showText(label).endText();
+        }
+    }
+}